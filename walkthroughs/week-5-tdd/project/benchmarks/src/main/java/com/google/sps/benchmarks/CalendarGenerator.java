@@ -0,0 +1,209 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.benchmarks;
+
+import com.google.sps.Event;
+import com.google.sps.MeetingRequest;
+import com.google.sps.TimeRange;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Generates the calendar of a company for one day, with the kinds of events real calendars are made
+ * of: team meetings, 1:1s between managers and their reports, an all-hands, out-of-office blocks and
+ * ad-hoc meetings. People are split into teams of {@code teamSize}, and the first person of every
+ * team is its manager. Some people are much more popular than others: the attendees of ad-hoc
+ * meetings and meeting requests are drawn from a Zipf distribution with exponent {@code
+ * popularitySkew}. Everything is drawn from a seeded {@code Random}, so the same arguments always
+ * give the same calendar.
+ */
+public final class CalendarGenerator {
+  private static final int WORK_START = TimeRange.getTimeInMinutes(9, 0);
+  private static final int WORK_END = TimeRange.getTimeInMinutes(18, 0);
+  private static final int ALL_HANDS_START = TimeRange.getTimeInMinutes(16, 0);
+  private static final int LUNCH_START = TimeRange.getTimeInMinutes(12, 0);
+
+  // Meetings are booked on quarter hours, like people do.
+  private static final int BOOKING_STEP = 15;
+
+  private final Random random;
+  private final int people;
+  private final int teamSize;
+  private final double outOfOfficeRatio;
+
+  // Person IDs ordered from the most to the least popular, and the cumulative Zipf weight of every
+  // rank in that order.
+  private final int[] byPopularity;
+  private final double[] cumulativePopularity;
+
+  /**
+   * Creates a generator for a company of {@code people} with teams of 8, a popularity skew of 1 and
+   * 3% of people out of the office.
+   */
+  public CalendarGenerator(long seed, int people) {
+    this(seed, people, 8, 1.0, 0.03);
+  }
+
+  public CalendarGenerator(
+      long seed, int people, int teamSize, double popularitySkew, double outOfOfficeRatio) {
+    if (people <= 0 || teamSize <= 0) {
+      throw new IllegalArgumentException("people and teamSize must be positive");
+    }
+
+    this.random = new Random(seed);
+    this.people = people;
+    this.teamSize = teamSize;
+    this.outOfOfficeRatio = outOfOfficeRatio;
+
+    byPopularity = new int[people];
+    for (int i = 0; i < people; i++) {
+      byPopularity[i] = i;
+    }
+    for (int i = people - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      int swap = byPopularity[i];
+      byPopularity[i] = byPopularity[j];
+      byPopularity[j] = swap;
+    }
+
+    cumulativePopularity = new double[people];
+    double total = 0;
+    for (int rank = 0; rank < people; rank++) {
+      total += 1 / Math.pow(rank + 1, popularitySkew);
+      cumulativePopularity[rank] = total;
+    }
+  }
+
+  /**
+   * Returns the name of person number {@code id}.
+   */
+  public static String person(int id) {
+    return Workload.person(id);
+  }
+
+  /**
+   * Generates the events of the day, including {@code adHocMeetings} meetings between people picked
+   * by popularity.
+   */
+  public List<Event> generateEvents(int adHocMeetings) {
+    List<Event> events = new ArrayList<>();
+
+    for (int manager = 0; manager < people; manager += teamSize) {
+      int teamEnd = Math.min(manager + teamSize, people);
+      List<String> team = new ArrayList<>();
+      for (int member = manager; member < teamEnd; member++) {
+        team.add(person(member));
+      }
+      int teamMeetingMinutes = 30 * (1 + random.nextInt(2));
+      events.add(
+          new Event("Team meeting " + manager, bookDuringWorkHours(teamMeetingMinutes), team));
+
+      for (int report = manager + 1; report < teamEnd; report++) {
+        events.add(new Event("1:1 " + manager + "/" + report, bookDuringWorkHours(30),
+            Arrays.asList(person(manager), person(report))));
+      }
+    }
+
+    List<String> everyone = new ArrayList<>(people);
+    for (int id = 0; id < people; id++) {
+      everyone.add(person(id));
+    }
+    events.add(new Event("All-hands", TimeRange.fromStartDuration(ALL_HANDS_START, 60), everyone));
+
+    for (int id = 0; id < people; id++) {
+      if (random.nextDouble() < outOfOfficeRatio) {
+        events.add(new Event("OOO " + id, outOfOffice(), Arrays.asList(person(id))));
+      }
+    }
+
+    for (int i = 0; i < adHocMeetings; i++) {
+      int duration = BOOKING_STEP * (1 + random.nextInt(6));
+      events.add(new Event("Meeting " + i, bookDuringWorkHours(duration),
+          pickPopularPeople(2 + random.nextInt(9))));
+    }
+
+    return events;
+  }
+
+  /**
+   * Generates {@code count} meeting requests. Each one is for part of a team plus some popular
+   * people, up to {@code maxAttendees} in total, of which about {@code optionalRatio} are optional.
+   */
+  public List<MeetingRequest> generateRequests(int count, int maxAttendees, double optionalRatio) {
+    List<MeetingRequest> requests = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      int size = 2 + random.nextInt(Math.max(1, maxAttendees - 1));
+      Set<String> attendees = new HashSet<>();
+
+      int manager = random.nextInt(people) / teamSize * teamSize;
+      for (int member = manager; member < Math.min(manager + teamSize, people)
+           && attendees.size() < size / 2 + 1; member++) {
+        attendees.add(person(member));
+      }
+      attendees.addAll(pickPopularPeople(size - attendees.size()));
+
+      List<String> mandatory = new ArrayList<>();
+      List<String> optional = new ArrayList<>();
+      for (String attendee : attendees) {
+        (random.nextDouble() < optionalRatio ? optional : mandatory).add(attendee);
+      }
+
+      MeetingRequest request = new MeetingRequest(mandatory, 30 * (1 + random.nextInt(2)));
+      for (String attendee : optional) {
+        request.addOptionalAttendee(attendee);
+      }
+      requests.add(request);
+    }
+    return requests;
+  }
+
+  /**
+   * Returns a time during work hours, on a quarter hour, that fits {@code duration} minutes.
+   */
+  private TimeRange bookDuringWorkHours(int duration) {
+    int steps = Math.max(1, (WORK_END - WORK_START - duration) / BOOKING_STEP + 1);
+    return TimeRange.fromStartDuration(WORK_START + BOOKING_STEP * random.nextInt(steps), duration);
+  }
+
+  /**
+   * Returns the whole day, the morning or the afternoon.
+   */
+  private TimeRange outOfOffice() {
+    switch (random.nextInt(3)) {
+      case 0:
+        return TimeRange.fromStartEnd(TimeRange.START_OF_DAY, LUNCH_START, false);
+      case 1:
+        return TimeRange.fromStartEnd(LUNCH_START, TimeRange.END_OF_DAY, true);
+      default:
+        return TimeRange.WHOLE_DAY;
+    }
+  }
+
+  private Set<String> pickPopularPeople(int count) {
+    Set<String> picked = new HashSet<>();
+    count = Math.min(Math.max(count, 0), people);
+    double total = cumulativePopularity[people - 1];
+    while (picked.size() < count) {
+      int rank = Arrays.binarySearch(cumulativePopularity, random.nextDouble() * total);
+      rank = rank < 0 ? Math.min(-(rank + 1), people - 1) : rank;
+      picked.add(person(byPopularity[rank]));
+    }
+    return picked;
+  }
+}
@@ -0,0 +1,120 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.benchmarks;
+
+import com.google.sps.BitsetMeetingQuery;
+import com.google.sps.CalendarIndex;
+import com.google.sps.CalendarMasks;
+import com.google.sps.Event;
+import com.google.sps.FindMeetingQuery;
+import com.google.sps.MeetingQuery;
+import com.google.sps.MeetingRequest;
+import com.google.sps.TimeRange;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how many meeting requests per second each {@code MeetingQuery} engine answers. Run it
+ * with {@code -prof gc} to also see the allocation rate of every engine.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FindMeetingQueryBenchmark {
+  // Must be a power of two so that the next request can be picked with a mask.
+  private static final int REQUESTS = 64;
+
+  // "offheap" is the bitset engine reading prebuilt masks of the whole day from CalendarMasks.
+  @Param({"find", "bitset", "offheap"})
+  public String engine;
+
+  @Param({"100", "10000"})
+  public int eventCount;
+
+  @Param({"1000"})
+  public int people;
+
+  @Param({"4"})
+  public int attendeesPerEvent;
+
+  @Param({"3", "200"})
+  public int requestedAttendees;
+
+  @Param({"0", "0.5"})
+  public double optionalRatio;
+
+  // Shorter events fragment the calendars into more, smaller gaps.
+  @Param({"30", "120"})
+  public int eventMinutes;
+
+  @Param({"30"})
+  public int meetingMinutes;
+
+  // The slot length of the prebuilt calendar, which sets the mask resolution of the bitset engine.
+  @Param({"1", "15"})
+  public int granularity;
+
+  private MeetingQuery query;
+  private List<Event> events;
+  private CalendarIndex calendar;
+  private MeetingRequest[] requests;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    events = Workload.events(random, eventCount, people, attendeesPerEvent, eventMinutes);
+    calendar = new CalendarIndex(events, granularity);
+    if (engine.equals("offheap")) {
+      query = new BitsetMeetingQuery(CalendarMasks.of(calendar, TimeRange.WHOLE_DAY));
+    } else {
+      query = engine.equals("bitset") ? new BitsetMeetingQuery() : new FindMeetingQuery();
+    }
+    requests = Workload.requests(random, REQUESTS, people, requestedAttendees, optionalRatio,
+        meetingMinutes).toArray(new MeetingRequest[0]);
+  }
+
+  /** Answers a request from the raw events, which includes indexing them. */
+  @Benchmark
+  public Collection<TimeRange> queryEvents() {
+    return query.query(events, nextRequest());
+  }
+
+  /** Answers a request against a calendar that was indexed in advance. */
+  @Benchmark
+  public Collection<TimeRange> queryIndex() {
+    return query.query(calendar, nextRequest());
+  }
+
+  private MeetingRequest nextRequest() {
+    return requests[next++ & (REQUESTS - 1)];
+  }
+}
@@ -0,0 +1,147 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.benchmarks;
+
+import com.google.sps.BitsetMeetingQuery;
+import com.google.sps.CalendarIndex;
+import com.google.sps.CalendarMasks;
+import com.google.sps.Event;
+import com.google.sps.FindMeetingQuery;
+import com.google.sps.MeetingQuery;
+import com.google.sps.MeetingRequest;
+import com.google.sps.TimeRange;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replays the meeting requests of a generated company calendar through a {@code MeetingQuery} and
+ * prints the latency percentiles of the requests. Arguments are given as {@code --name=value}:
+ *
+ * <ul>
+ *   <li>{@code --seed}: the seed of the generated calendar, 42 by default
+ *   <li>{@code --people}: the size of the company, 1000 by default
+ *   <li>{@code --meetings}: the number of ad-hoc meetings, 4 per person by default
+ *   <li>{@code --requests}: the number of replayed requests, 10000 by default
+ *   <li>{@code --max-attendees}: the largest meeting request, 20 by default
+ *   <li>{@code --optional-ratio}: the share of optional attendees, 0.2 by default
+ *   <li>{@code --engine}: {@code find}, {@code bitset} or {@code offheap}, {@code find} by
+ *       default. {@code offheap} is the bitset engine reading masks of the whole day that are built
+ *       from the calendar in advance, which counts toward the index build time
+ *   <li>{@code --warmup}: the number of times the requests are replayed before measuring, 2 by
+ *       default
+ * </ul>
+ */
+public final class ReplayDriver {
+  private static final List<String> ENGINES = Arrays.asList("find", "bitset", "offheap");
+
+  private ReplayDriver() {}
+
+  public static void main(String[] args) {
+    Map<String, String> options = parseOptions(args);
+    long seed = Long.parseLong(option(options, "seed", "42"));
+    int people = Integer.parseInt(option(options, "people", "1000"));
+    int meetings = Integer.parseInt(option(options, "meetings", String.valueOf(4 * people)));
+    int requestCount = Integer.parseInt(option(options, "requests", "10000"));
+    int maxAttendees = Integer.parseInt(option(options, "max-attendees", "20"));
+    double optionalRatio = Double.parseDouble(option(options, "optional-ratio", "0.2"));
+    String engine = option(options, "engine", "find");
+    int warmup = Integer.parseInt(option(options, "warmup", "2"));
+
+    CalendarGenerator generator = new CalendarGenerator(seed, people);
+    List<Event> events = generator.generateEvents(meetings);
+    List<MeetingRequest> requests =
+        generator.generateRequests(requestCount, maxAttendees, optionalRatio);
+
+    long indexStart = System.nanoTime();
+    CalendarIndex calendar = new CalendarIndex(events);
+    MeetingQuery query = createQuery(engine, calendar);
+    long indexNanos = System.nanoTime() - indexStart;
+
+    long checksum = 0;
+    for (int round = 0; round < warmup; round++) {
+      for (MeetingRequest request : requests) {
+        checksum += query.query(calendar, request).size();
+      }
+    }
+
+    long[] latencies = new long[requests.size()];
+    long replayStart = System.nanoTime();
+    for (int i = 0; i < latencies.length; i++) {
+      long start = System.nanoTime();
+      checksum += query.query(calendar, requests.get(i)).size();
+      latencies[i] = System.nanoTime() - start;
+    }
+    long replayNanos = System.nanoTime() - replayStart;
+
+    Arrays.sort(latencies);
+    System.out.printf("engine=%s people=%d events=%d requests=%d%n", engine, people,
+        events.size(), latencies.length);
+    System.out.printf("index build: %.1f ms%n", indexNanos / 1e6);
+    System.out.printf("throughput: %.0f requests/s%n", latencies.length / (replayNanos / 1e9));
+    for (double percentile : new double[] {50, 90, 99, 99.9}) {
+      System.out.printf("p%s: %.1f us%n", percentile == 99.9 ? "99.9" : (int) percentile,
+          percentile(latencies, percentile) / 1e3);
+    }
+    System.out.printf("max: %.1f us%n", latencies[latencies.length - 1] / 1e3);
+    // Printing the checksum keeps the JIT from dropping the query results.
+    System.out.printf("checksum: %d%n", checksum);
+  }
+
+  /**
+   * Returns the nearest-rank {@code percentile} of the sorted {@code values}.
+   */
+  static long percentile(long[] sortedValues, double percentile) {
+    int rank = (int) Math.ceil(percentile / 100 * sortedValues.length);
+    return sortedValues[Math.max(0, Math.min(rank, sortedValues.length) - 1)];
+  }
+
+  private static MeetingQuery createQuery(String engine, CalendarIndex calendar) {
+    switch (engine) {
+      case "find":
+        return new FindMeetingQuery();
+      case "bitset":
+        return new BitsetMeetingQuery();
+      case "offheap":
+        return new BitsetMeetingQuery(CalendarMasks.of(calendar, TimeRange.WHOLE_DAY));
+      default:
+        throw new IllegalArgumentException("Unknown engine " + engine);
+    }
+  }
+
+  private static Map<String, String> parseOptions(String[] args) {
+    Map<String, String> options = new HashMap<>();
+    for (String arg : args) {
+      if (!arg.startsWith("--") || !arg.contains("=")) {
+        throw new IllegalArgumentException("Arguments must look like --name=value: " + arg);
+      }
+      int equals = arg.indexOf('=');
+      options.put(arg.substring(2, equals), arg.substring(equals + 1));
+    }
+
+    String engine = options.get("engine");
+    if (engine != null && !ENGINES.contains(engine)) {
+      throw new IllegalArgumentException(
+          "Unknown engine " + engine + ", expected one of " + ENGINES);
+    }
+    return options;
+  }
+
+  private static String option(Map<String, String> options, String name, String defaultValue) {
+    String value = options.get(name);
+    return value == null ? defaultValue : value;
+  }
+}
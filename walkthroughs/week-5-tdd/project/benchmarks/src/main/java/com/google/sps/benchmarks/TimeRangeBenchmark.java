@@ -0,0 +1,102 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.benchmarks;
+
+import com.google.sps.IntervalList;
+import com.google.sps.TimeRange;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the {@code TimeRange} list helpers next to the {@code IntervalList} operations that
+ * replace them in the scheduler.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimeRangeBenchmark {
+  private static final int MINUTES_PER_DAY = TimeRange.WHOLE_DAY.duration();
+
+  @Param({"10", "100", "1000"})
+  public int slots;
+
+  @Param({"30"})
+  public int minLength;
+
+  private ArrayList<TimeRange> ranges;
+  private IntervalList intervals;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    ranges = new ArrayList<>(slots);
+    for (int i = 0; i < slots; i++) {
+      int duration = 5 + random.nextInt(60);
+      ranges.add(TimeRange.fromStartDuration(random.nextInt(MINUTES_PER_DAY - duration), duration));
+    }
+    intervals = IntervalList.fromTimeRanges(ranges);
+  }
+
+  @Benchmark
+  public ArrayList<TimeRange> sortByStart() {
+    ArrayList<TimeRange> copy = new ArrayList<>(ranges);
+    Collections.sort(copy, TimeRange.ORDER_BY_START);
+    return copy;
+  }
+
+  @Benchmark
+  public ArrayList<TimeRange> getRangesLongEnough() {
+    return TimeRange.getRangesLongEnough(ranges, minLength);
+  }
+
+  @Benchmark
+  public ArrayList<TimeRange> getUniqueSortedSlots() {
+    return TimeRange.getUniqueSortedSlots(new ArrayList<>(ranges));
+  }
+
+  @Benchmark
+  public int countOverlaps() {
+    int overlaps = 0;
+    for (int i = 1; i < ranges.size(); i++) {
+      if (ranges.get(i).overlaps(ranges.get(i - 1))) {
+        overlaps++;
+      }
+    }
+    return overlaps;
+  }
+
+  @Benchmark
+  public IntervalList intervalListSortMergeInvert() {
+    IntervalList copy = new IntervalList(intervals.size());
+    copy.addAll(intervals);
+    return copy.sort().merge().invert(0, MINUTES_PER_DAY);
+  }
+}
@@ -0,0 +1,90 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.benchmarks;
+
+import com.google.sps.Event;
+import com.google.sps.MeetingRequest;
+import com.google.sps.TimeRange;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Builds random events and meeting requests for the benchmarks. Everything is drawn from a seeded
+ * {@code Random}, so the same parameters always give the same workload.
+ */
+final class Workload {
+  private static final int MINUTES_PER_DAY = TimeRange.WHOLE_DAY.duration();
+
+  private Workload() {}
+
+  /**
+   * Returns the name of person number {@code index} in the directory.
+   */
+  static String person(int index) {
+    return "Person " + index;
+  }
+
+  /**
+   * Creates {@code eventCount} events spread over the day. Each event has {@code attendeesPerEvent}
+   * people picked from a directory of {@code people}, and lasts up to {@code eventMinutes} minutes.
+   * Shorter events split the calendars into more, smaller gaps.
+   */
+  static List<Event> events(
+      Random random, int eventCount, int people, int attendeesPerEvent, int eventMinutes) {
+    List<Event> events = new ArrayList<>(eventCount);
+    for (int i = 0; i < eventCount; i++) {
+      int duration = 5 + random.nextInt(Math.max(1, eventMinutes - 4));
+      int start = random.nextInt(MINUTES_PER_DAY - duration);
+      events.add(new Event("Event " + i, TimeRange.fromStartDuration(start, duration),
+          pickPeople(random, people, attendeesPerEvent)));
+    }
+    return events;
+  }
+
+  /**
+   * Creates {@code count} requests for {@code requestedAttendees} people each, of which about
+   * {@code optionalRatio} are optional.
+   */
+  static List<MeetingRequest> requests(Random random, int count, int people,
+      int requestedAttendees, double optionalRatio, int meetingMinutes) {
+    List<MeetingRequest> requests = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      List<String> mandatory = new ArrayList<>();
+      List<String> optional = new ArrayList<>();
+      for (String attendee : pickPeople(random, people, requestedAttendees)) {
+        (random.nextDouble() < optionalRatio ? optional : mandatory).add(attendee);
+      }
+
+      MeetingRequest request = new MeetingRequest(mandatory, meetingMinutes);
+      for (String attendee : optional) {
+        request.addOptionalAttendee(attendee);
+      }
+      requests.add(request);
+    }
+    return requests;
+  }
+
+  private static Set<String> pickPeople(Random random, int people, int count) {
+    Set<String> picked = new HashSet<>();
+    count = Math.min(count, people);
+    while (picked.size() < count) {
+      picked.add(person(random.nextInt(people)));
+    }
+    return picked;
+  }
+}
@@ -0,0 +1,103 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gives every attendee name a dense {@code int} ID, starting from 0, the first time the name is
+ * seen. The scheduler stores calendars in arrays indexed by these IDs, so a name only has to be
+ * hashed once per request instead of once per lookup.
+ *
+ * <p>Names can be looked up from any number of threads without a lock, even while new names are
+ * added. Adding a new name takes a lock, but adding a name that is already known does not.
+ */
+public final class AttendeeDictionary {
+  /** The ID of every name that has never been added to the dictionary. */
+  public static final int UNKNOWN_ID = -1;
+
+  private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+
+  // The name of each ID. Only grown and written while holding the lock of the dictionary, and
+  // written before the ID is put in ids, so anyone who has an ID can read its name.
+  private volatile String[] names = new String[8];
+  private volatile int size;
+
+  /**
+   * Returns the ID of {@code name}, giving it the next free ID if it is not in the dictionary yet.
+   */
+  public int intern(String name) {
+    Integer id = ids.get(name);
+    if (id != null) {
+      return id;
+    }
+
+    synchronized (this) {
+      id = ids.get(name);
+      if (id == null) {
+        id = size;
+        String[] grown = names;
+        if (id == grown.length) {
+          grown = Arrays.copyOf(grown, id * 2);
+        }
+        grown[id] = name;
+        names = grown;
+        size = id + 1;
+        ids.put(name, id);
+      }
+      return id;
+    }
+  }
+
+  /**
+   * Returns the ID of {@code name}, or {@code UNKNOWN_ID} if it is not in the dictionary.
+   */
+  public int getId(String name) {
+    Integer id = ids.get(name);
+    return id == null ? UNKNOWN_ID : id;
+  }
+
+  /**
+   * Returns the IDs of {@code names}, in iteration order. Names that are not in the dictionary are
+   * given {@code UNKNOWN_ID}, so the result always has one ID per name.
+   */
+  public int[] getIds(Collection<String> names) {
+    int[] result = new int[names.size()];
+    int i = 0;
+    for (String name : names) {
+      result[i++] = getId(name);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the name with the given {@code id}.
+   */
+  public String getName(int id) {
+    if (id < 0 || id >= size) {
+      throw new IndexOutOfBoundsException("Unknown attendee ID: " + id);
+    }
+    return names[id];
+  }
+
+  /**
+   * Returns the number of names in the dictionary. Every ID is less than this number.
+   */
+  public int size() {
+    return size;
+  }
+}
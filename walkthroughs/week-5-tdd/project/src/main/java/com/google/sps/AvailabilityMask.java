@@ -0,0 +1,283 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A fixed-size bit mask over the minutes of a day, where a set bit means that someone is busy
+ * during that minute. Masks of several people can be combined with {@code or} to find the minutes
+ * when all of them are free.
+ *
+ * <p>A mask may also start at any {@code origin}, such as the first minute of a multi-day search
+ * window in minutes since the epoch. Slots are always given in the same unit as the origin.
+ *
+ * <p>A mask may also keep one bit per slot of several minutes, such as 15, when busy times always
+ * start and end on multiples of that length. Slots are lined up on those multiples, not on the
+ * origin, and a slot is busy as soon as any minute of it is marked busy. Every method still takes
+ * and returns minutes.
+ */
+public final class AvailabilityMask {
+  private static final int BITS_PER_WORD = Long.SIZE;
+
+  private final int origin;
+  private final int size;
+  private final int slotLength;
+
+  // The index of the slot that holds the origin, counting slots from minute 0.
+  private final int firstSlot;
+  private final int slotCount;
+  private final long[] words;
+
+  /**
+   * Creates a mask where all {@code size} slots, starting at slot 0, are free.
+   */
+  public AvailabilityMask(int size) {
+    this(0, size);
+  }
+
+  /**
+   * Creates a mask where all {@code size} slots, starting at slot {@code origin}, are free.
+   */
+  public AvailabilityMask(int origin, int size) {
+    this(origin, size, 1);
+  }
+
+  /**
+   * Creates a mask where all {@code size} minutes, starting at minute {@code origin}, are free, and
+   * which keeps one bit for every {@code slotLength} minutes.
+   */
+  public AvailabilityMask(int origin, int size, int slotLength) {
+    if (size < 0) {
+      throw new IllegalArgumentException("size cannot be negative");
+    }
+
+    if (slotLength <= 0) {
+      throw new IllegalArgumentException("slotLength must be positive");
+    }
+
+    this.origin = origin;
+    this.size = size;
+    this.slotLength = slotLength;
+    this.firstSlot = Math.floorDiv(origin, slotLength);
+    this.slotCount = size == 0 ? 0 : ceilDiv(origin + size, slotLength) - firstSlot;
+    this.words = new long[(slotCount + BITS_PER_WORD - 1) / BITS_PER_WORD];
+  }
+
+  /**
+   * Returns the first slot covered by this mask.
+   */
+  public int origin() {
+    return origin;
+  }
+
+  /**
+   * Returns the number of slots covered by this mask.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the number of minutes that each bit of this mask stands for.
+   */
+  public int slotLength() {
+    return slotLength;
+  }
+
+  /**
+   * Marks the slots from {@code start} (inclusive) to {@code end} (exclusive) as busy. Slots
+   * outside of the mask are ignored.
+   */
+  public void markBusy(int start, int end) {
+    // Work on offsets from the origin, in longs so that slots far from it cannot overflow.
+    long clippedStart = Math.max((long) start, origin);
+    long clippedEnd = Math.min((long) end, (long) origin + size);
+    if (clippedStart >= clippedEnd) {
+      return;
+    }
+
+    // A slot is busy as soon as any of its minutes is busy.
+    start = (int) (Math.floorDiv(clippedStart, (long) slotLength) - firstSlot);
+    end = (int) (-Math.floorDiv(-clippedEnd, (long) slotLength) - firstSlot);
+
+    int startWord = start / BITS_PER_WORD;
+    int endWord = (end - 1) / BITS_PER_WORD;
+    long startMask = -1L << start;
+    long endMask = -1L >>> -end;
+
+    if (startWord == endWord) {
+      words[startWord] |= startMask & endMask;
+      return;
+    }
+
+    words[startWord] |= startMask;
+    for (int i = startWord + 1; i < endWord; i++) {
+      words[i] = -1L;
+    }
+    words[endWord] |= endMask;
+  }
+
+  /**
+   * Marks every slot that is busy in {@code other} as busy in this mask as well.
+   */
+  public void or(AvailabilityMask other) {
+    if (other.origin != origin || other.size != size || other.slotLength != slotLength) {
+      throw new IllegalArgumentException("Masks must have the same origin, size and slot length.");
+    }
+
+    for (int i = 0; i < words.length; i++) {
+      words[i] |= other.words[i];
+    }
+  }
+
+  /**
+   * Marks as busy every slot that is busy in a mask of the same slot length whose words are read in
+   * place from {@code source}, starting at index {@code offset}, {@code wordCount} words long and
+   * starting {@code slotShift} slots before this mask. Only the words that line up with this mask
+   * are read, and none of them are copied out of {@code source} first.
+   */
+  void or(LongBuffer source, int offset, int wordCount, int slotShift) {
+    int shift = slotShift % BITS_PER_WORD;
+    int sourceWord = slotShift / BITS_PER_WORD;
+    for (int i = 0; i < words.length && sourceWord + i < wordCount; i++) {
+      long word = source.get(offset + sourceWord + i) >>> shift;
+      if (shift != 0 && sourceWord + i + 1 < wordCount) {
+        word |= source.get(offset + sourceWord + i + 1) << (BITS_PER_WORD - shift);
+      }
+      words[i] |= word;
+    }
+
+    // Slots past the end of this mask may have come along with the last word.
+    if (slotCount % BITS_PER_WORD != 0) {
+      words[words.length - 1] &= -1L >>> -slotCount;
+    }
+  }
+
+  /**
+   * Writes the words of this mask to {@code target}, starting at index {@code offset}.
+   */
+  void copyTo(LongBuffer target, int offset) {
+    for (int i = 0; i < words.length; i++) {
+      target.put(offset + i, words[i]);
+    }
+  }
+
+  /**
+   * Marks every slot as free.
+   */
+  void clear() {
+    Arrays.fill(words, 0);
+  }
+
+  /**
+   * Returns the index of the first slot of this mask, counting slots from minute 0.
+   */
+  int firstSlot() {
+    return firstSlot;
+  }
+
+  /**
+   * Returns the number of words that hold the bits of this mask.
+   */
+  int wordCount() {
+    return words.length;
+  }
+
+  /**
+   * Returns a copy of this mask that can be changed without affecting this one.
+   */
+  public AvailabilityMask copy() {
+    AvailabilityMask copy = new AvailabilityMask(origin, size, slotLength);
+    System.arraycopy(words, 0, copy.words, 0, words.length);
+    return copy;
+  }
+
+  public boolean isBusy(int slot) {
+    if (slot < origin || (long) slot >= (long) origin + size) {
+      return false;
+    }
+    int bit = Math.floorDiv(slot, slotLength) - firstSlot;
+    return (words[bit / BITS_PER_WORD] & (1L << bit)) != 0;
+  }
+
+  /**
+   * @return the free ranges of slots, in ascending order, that are at least {@code minLength} slots
+   *     long
+   */
+  public ArrayList<TimeRange> getFreeRanges(int minLength) {
+    ArrayList<TimeRange> freeRanges = new ArrayList<TimeRange>();
+
+    // The first and last slots may stick out of the mask, so ranges are cut to it before their
+    // length is checked.
+    int maskEnd = origin + size;
+    int start = nextFreeSlot(0);
+    while (start < slotCount) {
+      int end = nextBusySlot(start);
+      int rangeStart = Math.max(origin, (firstSlot + start) * slotLength);
+      int rangeEnd = Math.min(maskEnd, (firstSlot + end) * slotLength);
+      if (rangeEnd - rangeStart >= minLength) {
+        freeRanges.add(TimeRange.fromStartEnd(rangeStart, rangeEnd, false));
+      }
+      start = nextFreeSlot(end);
+    }
+
+    return freeRanges;
+  }
+
+  /**
+   * @return the first busy slot at or after {@code from}, or {@code slotCount} if there is none
+   */
+  private int nextBusySlot(int from) {
+    if (from >= slotCount) {
+      return slotCount;
+    }
+
+    int wordIndex = from / BITS_PER_WORD;
+    long word = words[wordIndex] & (-1L << from);
+    while (word == 0) {
+      if (++wordIndex == words.length) {
+        return slotCount;
+      }
+      word = words[wordIndex];
+    }
+    return Math.min(wordIndex * BITS_PER_WORD + Long.numberOfTrailingZeros(word), slotCount);
+  }
+
+  /**
+   * @return the first free slot at or after {@code from}, or {@code slotCount} if there is none
+   */
+  private int nextFreeSlot(int from) {
+    if (from >= slotCount) {
+      return slotCount;
+    }
+
+    int wordIndex = from / BITS_PER_WORD;
+    long word = ~words[wordIndex] & (-1L << from);
+    while (word == 0) {
+      if (++wordIndex == words.length) {
+        return slotCount;
+      }
+      word = ~words[wordIndex];
+    }
+    return Math.min(wordIndex * BITS_PER_WORD + Long.numberOfTrailingZeros(word), slotCount);
+  }
+
+  private static int ceilDiv(int value, int divisor) {
+    return -Math.floorDiv(-value, divisor);
+  }
+}
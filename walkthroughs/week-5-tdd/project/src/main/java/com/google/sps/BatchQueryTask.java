@@ -0,0 +1,62 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Answers a range of meeting requests against one calendar on a {@code ForkJoinPool}. The range is
+ * split in halves until it is small enough to be answered on a single thread. Every request writes
+ * its answer to its own position in {@code answers}, so the tasks never share any state.
+ */
+final class BatchQueryTask extends RecursiveAction {
+  private static final long serialVersionUID = 1L;
+
+  // Requests are cheap compared to the cost of a task, so answer a few of them per task.
+  private static final int REQUESTS_PER_TASK = 8;
+
+  private final MeetingQuery query;
+  private final CalendarIndex calendar;
+  private final List<MeetingRequest> requests;
+  private final Collection<TimeRange>[] answers;
+  private final int from;
+  private final int to;
+
+  BatchQueryTask(MeetingQuery query, CalendarIndex calendar, List<MeetingRequest> requests,
+      Collection<TimeRange>[] answers, int from, int to) {
+    this.query = query;
+    this.calendar = calendar;
+    this.requests = requests;
+    this.answers = answers;
+    this.from = from;
+    this.to = to;
+  }
+
+  @Override
+  protected void compute() {
+    if (to - from <= REQUESTS_PER_TASK) {
+      for (int i = from; i < to; i++) {
+        answers[i] = query.query(calendar, requests.get(i));
+      }
+      return;
+    }
+
+    int middle = (from + to) >>> 1;
+    invokeAll(new BatchQueryTask(query, calendar, requests, answers, from, middle),
+        new BatchQueryTask(query, calendar, requests, answers, middle, to));
+  }
+}
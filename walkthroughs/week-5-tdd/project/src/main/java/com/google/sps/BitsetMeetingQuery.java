@@ -0,0 +1,164 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * A {@code MeetingQuery} that represents the busy minutes of the day as an {@code
+ * AvailabilityMask}. Instead of sorting and merging time ranges, every event of a requested
+ * attendee sets its minutes in the mask and the free ranges are read back with a few word
+ * operations.
+ *
+ * <p>The query can also be given {@code CalendarMasks} built in advance, which hold the mask of every
+ * attendee outside of the heap. Queries that they cover then OR the masks of the attendees together
+ * instead of marking their busy slots one by one.
+ */
+public final class BitsetMeetingQuery implements MeetingQuery {
+  private static final int MINUTES_PER_DAY = TimeRange.MINUTES_PER_DAY;
+
+  // May be null, in which case masks are always built from the busy slots.
+  private final CalendarMasks masks;
+
+  /**
+   * Creates a query that builds the masks of every request from the busy slots of the attendees.
+   */
+  public BitsetMeetingQuery() {
+    this(null);
+  }
+
+  /**
+   * Creates a query that reads the masks of the attendees from {@code masks} whenever they cover
+   * the calendar and the window of a request.
+   */
+  public BitsetMeetingQuery(CalendarMasks masks) {
+    this.masks = masks;
+  }
+
+  @Override
+  public Collection<TimeRange> query(Collection<Event> events, MeetingRequest request) {
+    Collection<String> mandatoryAttendees = request.getAttendees();
+    Collection<String> optionalAttendees = request.getOptionalAttendees();
+
+    // If no attendees, then the whole day is available for the request
+    if (mandatoryAttendees.isEmpty() && optionalAttendees.isEmpty()) {
+      ArrayList<TimeRange> availableSlots = new ArrayList<TimeRange>();
+      availableSlots.add(TimeRange.WHOLE_DAY);
+      return availableSlots;
+    }
+
+    // OR-ing the masks of every attendee is the same as marking each of their events in a single
+    // mask, so only one mask per group of attendees is ever allocated.
+    AvailabilityMask mandatoryMask = new AvailabilityMask(MINUTES_PER_DAY);
+    AvailabilityMask optionalMask = new AvailabilityMask(MINUTES_PER_DAY);
+    for (Event event : events) {
+      TimeRange when = event.getWhen();
+      if (attendsAny(event, mandatoryAttendees)) {
+        mandatoryMask.markBusy(when.start(), when.end());
+      }
+      if (attendsAny(event, optionalAttendees)) {
+        optionalMask.markBusy(when.start(), when.end());
+      }
+    }
+
+    return getAvailableSlots(mandatoryMask, !mandatoryAttendees.isEmpty(), optionalMask,
+        !optionalAttendees.isEmpty(), (int) request.getDuration());
+  }
+
+  /**
+   * Only allocates one mask per group of attendees, sized to {@code window}, so a horizon of a few
+   * weeks costs a few kilobytes no matter how many attendees are requested. The masks keep one bit
+   * per slot of the granularity of {@code calendar}, so coarser calendars need smaller masks.
+   */
+  @Override
+  public Collection<TimeRange> query(CalendarIndex calendar, int[] mandatoryAttendees,
+      int[] optionalAttendees, long duration, TimeRange window) {
+    // If no attendees, then the whole window is available for the request
+    if (mandatoryAttendees.length == 0 && optionalAttendees.length == 0) {
+      ArrayList<TimeRange> availableSlots = new ArrayList<TimeRange>();
+      availableSlots.add(window);
+      return availableSlots;
+    }
+
+    return getAvailableSlots(getBusyMask(calendar, mandatoryAttendees, window),
+        mandatoryAttendees.length > 0, getBusyMask(calendar, optionalAttendees, window),
+        optionalAttendees.length > 0, (int) duration);
+  }
+
+  /**
+   * Marks the busy slots of every one of {@code attendees} that overlap {@code window} in a single
+   * mask.
+   */
+  private AvailabilityMask getBusyMask(CalendarIndex calendar, int[] attendees, TimeRange window) {
+    AvailabilityMask busyMask =
+        new AvailabilityMask(window.start(), window.duration(), calendar.getGranularity());
+    if (masks != null && masks.covers(calendar, window)) {
+      for (int attendee : attendees) {
+        masks.orInto(attendee, busyMask);
+      }
+      return busyMask;
+    }
+
+    for (int attendee : attendees) {
+      IntervalList busySlots = calendar.getBusyIntervals(attendee);
+      for (int i = busySlots.indexOfFirstEndingAfter(window.start());
+          i < busySlots.size() && busySlots.start(i) < window.end(); i++) {
+        busyMask.markBusy(busySlots.start(i), busySlots.end(i));
+      }
+    }
+    return busyMask;
+  }
+
+  /**
+   * Reads the answer to a request from the busy masks of its mandatory and optional attendees.
+   */
+  private static ArrayList<TimeRange> getAvailableSlots(AvailabilityMask mandatoryMask,
+      boolean hasMandatory, AvailabilityMask optionalMask, boolean hasOptional,
+      int meetingDuration) {
+    if (!hasOptional) {
+      return mandatoryMask.getFreeRanges(meetingDuration);
+    }
+    if (!hasMandatory) {
+      return optionalMask.getFreeRanges(meetingDuration);
+    }
+
+    // Prefer the slots that also work for the optional attendees, otherwise fall back to the slots
+    // that work for the mandatory attendees only.
+    AvailabilityMask everyoneMask = mandatoryMask.copy();
+    everyoneMask.or(optionalMask);
+    ArrayList<TimeRange> availableWithOptional = everyoneMask.getFreeRanges(meetingDuration);
+    if (!availableWithOptional.isEmpty()) {
+      return availableWithOptional;
+    }
+    return mandatoryMask.getFreeRanges(meetingDuration);
+  }
+
+  /**
+   * Check if at least one of {@code attendees} goes to {@code event}
+   */
+  private static boolean attendsAny(Event event, Collection<String> attendees) {
+    if (attendees.isEmpty()) {
+      return false;
+    }
+
+    for (String attendee : event.getAttendees()) {
+      if (attendees.contains(attendee)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
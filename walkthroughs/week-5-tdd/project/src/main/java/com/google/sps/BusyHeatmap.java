@@ -0,0 +1,119 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Collection;
+
+/**
+ * How many of a group of attendees are busy in each bucket of a window, such as each minute or each
+ * 15 minutes of the day. An attendee counts as busy in a bucket if they are busy during any part of
+ * it.
+ *
+ * <p>The counts are built in one pass over the busy slots of the attendees: every busy slot adds one
+ * at its first bucket and removes one after its last bucket of a difference array, and a prefix sum
+ * turns that into the counts.
+ */
+public final class BusyHeatmap {
+  private final int start;
+  private final int bucketMinutes;
+  private final int[] counts;
+
+  private BusyHeatmap(int start, int bucketMinutes, int[] counts) {
+    this.start = start;
+    this.bucketMinutes = bucketMinutes;
+    this.counts = counts;
+  }
+
+  /**
+   * Counts how many of {@code attendees} are busy in each bucket of {@code bucketMinutes} minutes
+   * within {@code window}. The last bucket is cut short if the window does not divide evenly.
+   * People who are not in {@code calendar} are never busy.
+   */
+  public static BusyHeatmap of(CalendarIndex calendar, Collection<String> attendees,
+      TimeRange window, int bucketMinutes) {
+    if (bucketMinutes <= 0) {
+      throw new IllegalArgumentException("bucketMinutes must be positive");
+    }
+
+    int bucketCount = (window.duration() + bucketMinutes - 1) / bucketMinutes;
+    int[] counts = new int[bucketCount + 1];
+    for (IntervalList busySlots :
+        calendar.getBusyIntervals(calendar.getAttendeeIds(attendees), window)) {
+
+      // Two busy slots of the same attendee can fall in the same bucket, so the bucket ranges are
+      // merged before they are counted to count the attendee only once.
+      int rangeStart = -1;
+      int rangeEnd = -1;
+      for (int i = 0; i < busySlots.size(); i++) {
+        if (busySlots.end(i) <= busySlots.start(i)) {
+          continue;
+        }
+        int first = bucketOf(Math.max(busySlots.start(i), window.start()), window, bucketMinutes);
+        int last = bucketOf(Math.min(busySlots.end(i), window.end()) - 1, window, bucketMinutes);
+        if (first > rangeEnd) {
+          if (rangeEnd >= 0) {
+            counts[rangeStart]++;
+            counts[rangeEnd]--;
+          }
+          rangeStart = first;
+        }
+        rangeEnd = Math.max(rangeEnd, last + 1);
+      }
+      if (rangeEnd >= 0) {
+        counts[rangeStart]++;
+        counts[rangeEnd]--;
+      }
+    }
+
+    for (int i = 1; i < counts.length; i++) {
+      counts[i] += counts[i - 1];
+    }
+    int[] bucketCounts = new int[bucketCount];
+    System.arraycopy(counts, 0, bucketCounts, 0, bucketCount);
+    return new BusyHeatmap(window.start(), bucketMinutes, bucketCounts);
+  }
+
+  /**
+   * Returns the first minute of the first bucket.
+   */
+  public int getStart() {
+    return start;
+  }
+
+  /**
+   * Returns the length of every bucket, except maybe the last one, in minutes.
+   */
+  public int getBucketMinutes() {
+    return bucketMinutes;
+  }
+
+  /**
+   * Returns the number of buckets.
+   */
+  public int size() {
+    return counts.length;
+  }
+
+  /**
+   * Returns how many attendees are busy during some part of bucket {@code index}.
+   */
+  public int getCount(int index) {
+    return counts[index];
+  }
+
+  private static int bucketOf(int minute, TimeRange window, int bucketMinutes) {
+    return (minute - window.start()) / bucketMinutes;
+  }
+}
@@ -0,0 +1,128 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+/**
+ * Walks through the busy slots of a group of attendees in start order, as if they were all in one
+ * sorted list. Each attendee's busy slots are already sorted in the calendar, so they are merged
+ * with a heap that holds the next busy slot of every attendee: each step costs O(log k) for k
+ * attendees, and no list of all the busy slots is ever built or sorted.
+ */
+final class BusySlotMerger {
+  private final IntervalList[] lists;
+  private final int[] positions;
+
+  // The indexes of the lists that have busy slots left, as a min-heap on the start of their next
+  // busy slot.
+  private final int[] heap;
+  private int heapSize;
+
+  private int start;
+  private int end;
+
+  /**
+   * Creates a merger of the busy slots of the attendees with the given IDs in {@code calendar},
+   * starting with the first ones that end after {@code from}.
+   */
+  BusySlotMerger(CalendarIndex calendar, int[] attendees, int from) {
+    this(busySlotsOf(calendar, attendees), from);
+  }
+
+  /**
+   * Creates a merger of the given lists of busy slots, each sorted and merged, starting with the
+   * first ones that end after {@code from}.
+   */
+  BusySlotMerger(IntervalList[] lists, int from) {
+    this.lists = lists;
+    this.positions = new int[lists.length];
+    this.heap = new int[lists.length];
+
+    for (int i = 0; i < lists.length; i++) {
+      positions[i] = lists[i].indexOfFirstEndingAfter(from);
+      if (positions[i] < lists[i].size()) {
+        heap[heapSize++] = i;
+      }
+    }
+    for (int i = heapSize / 2 - 1; i >= 0; i--) {
+      siftDown(i);
+    }
+  }
+
+  /**
+   * Moves to the busy slot with the next earliest start, and returns false if there are none left.
+   */
+  boolean next() {
+    if (heapSize == 0) {
+      return false;
+    }
+
+    int list = heap[0];
+    start = lists[list].start(positions[list]);
+    end = lists[list].end(positions[list]);
+    if (++positions[list] < lists[list].size()) {
+      siftDown(0);
+    } else if (--heapSize > 0) {
+      heap[0] = heap[heapSize];
+      siftDown(0);
+    }
+    return true;
+  }
+
+  /**
+   * Returns the start of the busy slot that {@code next} moved to.
+   */
+  int start() {
+    return start;
+  }
+
+  /**
+   * Returns the exclusive end of the busy slot that {@code next} moved to.
+   */
+  int end() {
+    return end;
+  }
+
+  private static IntervalList[] busySlotsOf(CalendarIndex calendar, int[] attendees) {
+    IntervalList[] lists = new IntervalList[attendees.length];
+    for (int i = 0; i < attendees.length; i++) {
+      lists[i] = calendar.getBusyIntervals(attendees[i]);
+    }
+    return lists;
+  }
+
+  private void siftDown(int index) {
+    int list = heap[index];
+    int listStart = nextStart(list);
+    while (true) {
+      int child = 2 * index + 1;
+      if (child >= heapSize) {
+        break;
+      }
+      if (child + 1 < heapSize && nextStart(heap[child + 1]) < nextStart(heap[child])) {
+        child++;
+      }
+      if (nextStart(heap[child]) >= listStart) {
+        break;
+      }
+      heap[index] = heap[child];
+      index = child;
+    }
+    heap[index] = list;
+  }
+
+  private int nextStart(int list) {
+    return lists[list].start(positions[list]);
+  }
+}
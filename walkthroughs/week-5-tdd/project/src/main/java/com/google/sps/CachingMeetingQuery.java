@@ -0,0 +1,177 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A {@code MeetingQuery} that remembers the answers of another one, so that a request that comes
+ * back against the same calendar is answered without running the query again.
+ *
+ * <p>Answers are keyed by the calendar, the sorted IDs of the mandatory and of the optional
+ * attendees, the duration and the window, so the order in which attendees are listed does not
+ * matter. An answer is only reused if none of its attendees has had an event added or removed
+ * since it was computed, so changes to the calendars of other people keep it alive. Once {@code
+ * maxEntries} answers are kept, the least recently used one is dropped.
+ *
+ * <p>Only queries against a {@code CalendarIndex} are cached. The cache can be used from several
+ * threads at once, even while the calendars change.
+ */
+public final class CachingMeetingQuery implements MeetingQuery {
+  private final MeetingQuery delegate;
+
+  // Kept in access order, so the eldest entry is the least recently used one. Guarded by itself.
+  private final LinkedHashMap<MeetingQueryKey, Answer> answers;
+
+  private long hitCount;
+  private long missCount;
+  private long evictionCount;
+
+  /**
+   * Creates a cache of at most {@code maxEntries} answers of {@code delegate}.
+   */
+  public CachingMeetingQuery(MeetingQuery delegate, final int maxEntries) {
+    if (maxEntries <= 0) {
+      throw new IllegalArgumentException("maxEntries must be positive");
+    }
+
+    this.delegate = delegate;
+    this.answers = new LinkedHashMap<MeetingQueryKey, Answer>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<MeetingQueryKey, Answer> eldest) {
+        if (size() > maxEntries) {
+          evictionCount++;
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Not cached, since there is no calendar version to tell when the answer goes stale.
+   */
+  @Override
+  public Collection<TimeRange> query(Collection<Event> events, MeetingRequest request) {
+    return delegate.query(events, request);
+  }
+
+  /**
+   * Returns a read-only answer, which may be shared with other callers.
+   */
+  @Override
+  public Collection<TimeRange> query(CalendarIndex calendar, int[] attendeeIds,
+      int[] optionalAttendeeIds, long duration, TimeRange window) {
+    MeetingQueryKey key =
+        new MeetingQueryKey(calendar, attendeeIds, optionalAttendeeIds, duration, window);
+    synchronized (answers) {
+      Answer answer = answers.get(key);
+      if (answer != null && answer.isCurrent(calendar, key)) {
+        hitCount++;
+        return answer.slots;
+      }
+      missCount++;
+    }
+
+    // Run the query outside of the lock so that other requests are not held up by it.
+    long version = calendar.getVersion();
+    Collection<TimeRange> slots = Collections.unmodifiableList(new ArrayList<>(
+        delegate.query(calendar, attendeeIds, optionalAttendeeIds, duration, window)));
+    synchronized (answers) {
+      answers.put(key, new Answer(version, slots));
+    }
+    return slots;
+  }
+
+  /**
+   * Returns how many queries were answered from the cache.
+   */
+  public long getHitCount() {
+    synchronized (answers) {
+      return hitCount;
+    }
+  }
+
+  /**
+   * Returns how many queries had to be passed on, because they were not cached or their answer was
+   * out of date.
+   */
+  public long getMissCount() {
+    synchronized (answers) {
+      return missCount;
+    }
+  }
+
+  /**
+   * Returns how many answers were dropped to make room for newer ones.
+   */
+  public long getEvictionCount() {
+    synchronized (answers) {
+      return evictionCount;
+    }
+  }
+
+  /**
+   * Returns the number of answers in the cache, including ones that may be out of date.
+   */
+  public int size() {
+    synchronized (answers) {
+      return answers.size();
+    }
+  }
+
+  /**
+   * Drops every answer.
+   */
+  public void clear() {
+    synchronized (answers) {
+      answers.clear();
+    }
+  }
+
+  /**
+   * An answer along with the version of the calendar it was computed at.
+   */
+  private static final class Answer {
+    final long version;
+    final Collection<TimeRange> slots;
+
+    Answer(long version, Collection<TimeRange> slots) {
+      this.version = version;
+      this.slots = slots;
+    }
+
+    /**
+     * Checks that none of the attendees of {@code key} changed since the answer was computed.
+     */
+    boolean isCurrent(CalendarIndex calendar, MeetingQueryKey key) {
+      for (int id : key.attendeeIds) {
+        if (calendar.getVersion(id) > version) {
+          return false;
+        }
+      }
+      for (int id : key.optionalAttendeeIds) {
+        if (calendar.getVersion(id) > version) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
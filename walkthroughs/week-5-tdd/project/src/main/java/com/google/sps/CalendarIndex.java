@@ -0,0 +1,431 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A lookup table from each attendee to the times of the day when they are busy. The index is built
+ * once from a collection of events, so that many meeting requests can be answered against the same
+ * events without walking through all of them again. The busy slots of every attendee are kept
+ * sorted by start and merged, so no two of them overlap.
+ *
+ * <p>Attendee names are turned into dense IDs by an {@code AttendeeDictionary} when events are
+ * loaded, and the busy slots are stored in lists indexed by those IDs.
+ *
+ * <p>Events can be added and removed after the index is built, even while other threads query the
+ * index. Only the busy slots of the attendees of the changed event are updated, and queries issued
+ * afterwards see the change right away. Readers never take a lock: the busy slots of every
+ * attendee are replaced by a new list on every change rather than changed in place, so a query sees
+ * either the old or the new list of each attendee, and the tree of events is replaced the same way.
+ * A query that runs during a change may see it for some of the attendees of the event and not yet
+ * for others. Writers lock the attendees they change, so the busy slots of different people are
+ * updated side by side. Every writer also takes one short lock to put the event in, or take it out
+ * of, the tree of all events, which only other writers ever wait for.
+ *
+ * <p>The events themselves are kept in an {@code EventIntervalTree}, so the events that overlap a
+ * window can be looked up without walking through all of them. Queries for a group within a short
+ * window, such as a meeting search or a heatmap of an hour, read the busy slots from the few events
+ * of the window rather than search the slots of every attendee.
+ *
+ * <p>An index can be given a granularity, such as 5 or 15 minutes, when meetings are only booked on
+ * those boundaries. Busy slots are then widened outward to the nearest boundaries, so nobody is
+ * ever shown as free when they are not, and every busy slot starts and ends on a boundary. Engines
+ * that work per slot of time, such as {@code BitsetMeetingQuery}, can then use one slot per
+ * boundary instead of one per minute.
+ */
+public final class CalendarIndex {
+  private static final IntervalList NO_INTERVALS = new IntervalList();
+
+  private final int granularity;
+
+  private final AttendeeDictionary dictionary = new AttendeeDictionary();
+
+  // The calendar of each attendee ID, or null for IDs that have none yet. Entries are only created
+  // while holding tableLock and are never replaced, so a new table only has to be copied and
+  // published when it grows.
+  private volatile AtomicReferenceArray<AttendeeCalendar> attendees =
+      new AtomicReferenceArray<>(0);
+  private final Object tableLock = new Object();
+
+  // Goes up on every change to the index.
+  private final AtomicLong version = new AtomicLong();
+
+  // Every indexed event, by time. Events are compared by value, so the same event can be added
+  // more than once. Changes are made while holding its lock; reads need none.
+  private final EventIntervalTree events = new EventIntervalTree();
+
+  /**
+   * Creates an empty index in which everyone is free all day.
+   */
+  public CalendarIndex() {
+    this(Collections.<Event>emptyList());
+  }
+
+  /**
+   * Creates an index of the busy slots of every attendee of {@code events}.
+   *
+   * @param events The events to index. Must be non-null.
+   */
+  public CalendarIndex(Collection<Event> events) {
+    this(events, 1);
+  }
+
+  /**
+   * Creates an index of the busy slots of every attendee of {@code events}, widened to multiples of
+   * {@code granularity} minutes.
+   *
+   * @param events The events to index. Must be non-null.
+   * @param granularity The length of a slot of time in minutes. Must divide a day evenly.
+   */
+  public CalendarIndex(Collection<Event> events, int granularity) {
+    if (events == null) {
+      throw new IllegalArgumentException("events cannot be null. Use empty collection instead.");
+    }
+
+    if (granularity <= 0 || TimeRange.MINUTES_PER_DAY % granularity != 0) {
+      throw new IllegalArgumentException("granularity must divide a day evenly.");
+    }
+
+    this.granularity = granularity;
+    for (Event event : events) {
+      this.events.add(event);
+      TimeRange when = quantize(event.getWhen());
+      for (String attendee : event.getAttendees()) {
+        getOrCreateAttendee(dictionary.intern(attendee)).eventSlots.add(when);
+      }
+    }
+
+    // Nobody else can see the index yet, so the busy slots are built without locks or versions.
+    AtomicReferenceArray<AttendeeCalendar> table = attendees;
+    for (int id = 0; id < table.length(); id++) {
+      AttendeeCalendar calendar = table.get(id);
+      if (calendar != null) {
+        Collections.sort(calendar.eventSlots, TimeRange.ORDER_BY_START);
+        calendar.busySlots = merge(calendar.eventSlots);
+      }
+    }
+  }
+
+  /**
+   * Adds {@code event} to the index. Only the busy slots of its attendees are updated.
+   */
+  public void addEvent(Event event) {
+    // The busy slots go in before the event is put in the tree, so that a removeEvent that finds
+    // the event there always finds its busy slots as well.
+    TimeRange when = quantize(event.getWhen());
+    List<AttendeeCalendar> changed = new ArrayList<>(event.getAttendees().size());
+    for (String attendee : event.getAttendees()) {
+      AttendeeCalendar calendar = getOrCreateAttendee(dictionary.intern(attendee));
+      synchronized (calendar) {
+        ArrayList<TimeRange> slots = calendar.eventSlots;
+        int position = Collections.binarySearch(slots, when, TimeRange.ORDER_BY_START);
+        slots.add(position < 0 ? -(position + 1) : position, when);
+        updateBusySlots(calendar);
+      }
+      changed.add(calendar);
+    }
+
+    synchronized (events) {
+      events.add(event);
+    }
+    moveToNewVersion(changed);
+  }
+
+  /**
+   * Removes one copy of {@code event} from the index. Only the busy slots of its attendees are
+   * updated.
+   *
+   * @return whether the event was in the index
+   */
+  public boolean removeEvent(Event event) {
+    // The event leaves the tree first, the reverse of addEvent, so its busy slots are there.
+    synchronized (events) {
+      if (!events.remove(event)) {
+        return false;
+      }
+    }
+
+    TimeRange when = quantize(event.getWhen());
+    List<AttendeeCalendar> changed = new ArrayList<>(event.getAttendees().size());
+    for (String attendee : event.getAttendees()) {
+      AttendeeCalendar calendar = getAttendee(dictionary.getId(attendee));
+      if (calendar == null) {
+        continue;
+      }
+      synchronized (calendar) {
+        calendar.eventSlots.remove(when);
+        updateBusySlots(calendar);
+      }
+      changed.add(calendar);
+    }
+    moveToNewVersion(changed);
+    return true;
+  }
+
+  /**
+   * Returns the version of the index, which goes up every time an event is added or removed. A
+   * freshly built index is at version 0.
+   */
+  public long getVersion() {
+    return version.get();
+  }
+
+  /**
+   * Returns the version of the index at which the busy slots of the attendee with the given {@code
+   * id} last changed. An answer that was computed at version {@code v} is still right for a group
+   * of attendees as long as none of them changed after {@code v}. Unknown IDs never change.
+   */
+  public long getVersion(int id) {
+    AttendeeCalendar calendar = getAttendee(id);
+    return calendar == null ? 0 : calendar.changeVersion;
+  }
+
+  /**
+   * Returns the length in minutes of the slots of time that busy slots are widened to.
+   */
+  public int getGranularity() {
+    return granularity;
+  }
+
+  /**
+   * Returns the indexed events that take up some time within {@code window}, sorted by start.
+   */
+  public List<Event> getEvents(TimeRange window) {
+    return events.getOverlapping(window);
+  }
+
+  /**
+   * Returns every indexed event, sorted by start.
+   */
+  public List<Event> getEvents() {
+    return events.getAll();
+  }
+
+  /**
+   * Returns the IDs of {@code attendees}, in iteration order. People who never went to an indexed
+   * event get {@code AttendeeDictionary.UNKNOWN_ID}, which is free all day.
+   */
+  public int[] getAttendeeIds(Collection<String> attendees) {
+    return dictionary.getIds(attendees);
+  }
+
+  /**
+   * Returns the dictionary that gives the IDs used by this index.
+   */
+  public AttendeeDictionary getDictionary() {
+    return dictionary;
+  }
+
+  /**
+   * Returns whether {@code attendee} goes to at least one of the indexed events.
+   */
+  public boolean hasAttendee(String attendee) {
+    return getBusyIntervals(dictionary.getId(attendee)) != NO_INTERVALS;
+  }
+
+  /**
+   * Returns a read-only set of everyone who goes to at least one of the indexed events.
+   */
+  public Set<String> getAttendees() {
+    Set<String> names = new HashSet<>();
+    AtomicReferenceArray<AttendeeCalendar> table = attendees;
+    for (int id = 0; id < table.length(); id++) {
+      AttendeeCalendar calendar = table.get(id);
+      if (calendar != null && calendar.busySlots != null) {
+        names.add(dictionary.getName(id));
+      }
+    }
+    return Collections.unmodifiableSet(names);
+  }
+
+  /**
+   * Returns the read-only busy slots of {@code attendee}, sorted by start and with no two of them
+   * overlapping. People who are not in the index are free all day, so they have no busy slots.
+   */
+  public List<TimeRange> getBusySlots(String attendee) {
+    return Collections.unmodifiableList(getBusyIntervals(attendee).toTimeRanges());
+  }
+
+  /**
+   * Returns the same busy slots as {@code getBusySlots}, without creating {@code TimeRange}
+   * objects. The returned list is shared, so callers must not change it.
+   */
+  public IntervalList getBusyIntervals(String attendee) {
+    return getBusyIntervals(dictionary.getId(attendee));
+  }
+
+  /**
+   * Returns the busy slots of the attendee with the given {@code id}. Unknown IDs, including
+   * {@code AttendeeDictionary.UNKNOWN_ID}, have no busy slots. The returned list is shared, so
+   * callers must not change it.
+   */
+  public IntervalList getBusyIntervals(int id) {
+    AttendeeCalendar calendar = getAttendee(id);
+    IntervalList slots = calendar == null ? null : calendar.busySlots;
+    return slots == null ? NO_INTERVALS : slots;
+  }
+
+  /**
+   * Returns, for each of the given {@code ids}, the busy slots of that attendee that overlap {@code
+   * window}, sorted by start and merged. Slots are not cut to the window, but the parts of them
+   * outside of it may be missing events that only touch those parts, so callers should only look
+   * at the window. The returned lists are shared, so callers must not change them.
+   *
+   * <p>When the window holds no more events than there are attendees, such as for a large group and
+   * a short window, the lists are built from the few events found in the event tree. Otherwise the
+   * busy slots of every attendee are searched on their own. The tree search gives up as soon as it
+   * finds too many events, so it never costs much more than the other way would have.
+   */
+  public IntervalList[] getBusyIntervals(int[] ids, TimeRange window) {
+    // Busy slots are widened to the granularity, so events up to a slot away can still overlap.
+    List<Event> eventsInWindow = events.getOverlapping(quantize(window), ids.length);
+
+    IntervalList[] lists = new IntervalList[ids.length];
+    if (eventsInWindow == null) {
+      for (int i = 0; i < ids.length; i++) {
+        lists[i] = new IntervalList();
+        lists[i].addAllWithin(getBusyIntervals(ids[i]), window.start(), window.end());
+      }
+      return lists;
+    }
+
+    // An attendee who is listed twice shares one list.
+    Map<Integer, IntervalList> listsById = new HashMap<>();
+    for (int i = 0; i < ids.length; i++) {
+      lists[i] = listsById.get(ids[i]);
+      if (lists[i] == null) {
+        lists[i] = new IntervalList();
+        listsById.put(ids[i], lists[i]);
+      }
+    }
+    for (Event event : eventsInWindow) {
+      TimeRange when = quantize(event.getWhen());
+      if (when.start() >= window.end() || when.end() <= window.start()) {
+        continue;
+      }
+      for (String attendee : event.getAttendees()) {
+        IntervalList list = listsById.get(dictionary.getId(attendee));
+        if (list != null) {
+          list.add(when.start(), when.end());
+        }
+      }
+    }
+    for (IntervalList list : listsById.values()) {
+      list.sort().merge();
+    }
+    return lists;
+  }
+
+  /**
+   * Widens {@code when} outward to multiples of the granularity. Ranges that take no time are left
+   * alone, since they never make anyone busy.
+   */
+  private TimeRange quantize(TimeRange when) {
+    if (granularity == 1 || when.duration() <= 0) {
+      return when;
+    }
+    int start = Math.floorDiv(when.start(), granularity) * granularity;
+    int end = -Math.floorDiv(-when.end(), granularity) * granularity;
+    return TimeRange.fromStartEnd(start, end, false);
+  }
+
+  private AttendeeCalendar getAttendee(int id) {
+    AtomicReferenceArray<AttendeeCalendar> table = attendees;
+    return id >= 0 && id < table.length() ? table.get(id) : null;
+  }
+
+  private AttendeeCalendar getOrCreateAttendee(int id) {
+    AttendeeCalendar calendar = getAttendee(id);
+    if (calendar != null) {
+      return calendar;
+    }
+
+    synchronized (tableLock) {
+      AtomicReferenceArray<AttendeeCalendar> table = attendees;
+      if (id >= table.length()) {
+        AtomicReferenceArray<AttendeeCalendar> grown =
+            new AtomicReferenceArray<>(Math.max(id + 1, table.length() * 2));
+        for (int i = 0; i < table.length(); i++) {
+          grown.set(i, table.get(i));
+        }
+        attendees = grown;
+        table = grown;
+      }
+
+      calendar = table.get(id);
+      if (calendar == null) {
+        calendar = new AttendeeCalendar();
+        table.set(id, calendar);
+      }
+      return calendar;
+    }
+  }
+
+  /**
+   * Publishes new merged busy slots for {@code calendar} from its sorted event slots. Callers must
+   * hold the lock of {@code calendar}, and move it to a new version once the change is done.
+   */
+  private static void updateBusySlots(AttendeeCalendar calendar) {
+    calendar.busySlots = merge(calendar.eventSlots);
+  }
+
+  /**
+   * Moves the index and the {@code changed} attendees to a new version, once both their busy slots
+   * and the event tree hold the change. A query that started at an earlier version may have read
+   * the index before the change, whichever path it read, and answers cached at that version are
+   * dropped. One that started at the new version or later sees all of the change.
+   */
+  private void moveToNewVersion(List<AttendeeCalendar> changed) {
+    long newVersion = version.incrementAndGet();
+    for (AttendeeCalendar calendar : changed) {
+      // Another change of the same attendee may have finished first with a later version.
+      synchronized (calendar) {
+        calendar.changeVersion = Math.max(calendar.changeVersion, newVersion);
+      }
+    }
+  }
+
+  private static IntervalList merge(ArrayList<TimeRange> slots) {
+    return slots.isEmpty() ? null : IntervalList.fromTimeRanges(slots).merge();
+  }
+
+  /**
+   * The events and busy slots of one attendee.
+   */
+  private static final class AttendeeCalendar {
+    // The times of every indexed event of the attendee, sorted by start. Overlapping events are
+    // kept apart so that one of them can be removed without losing the others. Guarded by this.
+    final ArrayList<TimeRange> eventSlots = new ArrayList<>();
+
+    // The merged version of eventSlots that queries read from, or null if there are no events. A
+    // new list is stored on every change, so the lists themselves are never changed once they are
+    // stored.
+    volatile IntervalList busySlots;
+
+    // The version at which busySlots last changed. See getVersion. Only goes up, and only while
+    // holding the lock of this.
+    volatile long changeVersion;
+  }
+}
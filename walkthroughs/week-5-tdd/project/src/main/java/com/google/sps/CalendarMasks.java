@@ -0,0 +1,154 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * The busy slots of every attendee of a calendar over a fixed horizon, such as the next few weeks,
+ * kept as one {@code AvailabilityMask} per attendee outside of the Java heap. For a large directory
+ * these masks take gigabytes, which the garbage collector would otherwise have to walk through on
+ * every full collection. Here they live in direct buffers that it never looks into, so pauses do not
+ * grow with the directory.
+ *
+ * <p>Every mask has the same length, so the mask of attendee ID {@code id} is found at a fixed
+ * offset. A {@code BitsetMeetingQuery} that is given the masks ORs the masks of the requested
+ * attendees into its own small mask straight from the buffers.
+ *
+ * <p>The masks are a snapshot of the calendar at the version it had when they were built. Once the
+ * calendar changes they are no longer used, and new ones have to be built to replace them. They
+ * can be read by any number of threads at once.
+ */
+public final class CalendarMasks {
+  // A direct buffer holds at most Integer.MAX_VALUE bytes, so large directories take several.
+  private static final int MAX_WORDS_PER_BUFFER = Integer.MAX_VALUE / Long.BYTES;
+
+  private final CalendarIndex calendar;
+  private final long version;
+  private final TimeRange horizon;
+  private final int granularity;
+  private final int firstSlot;
+  private final int attendeeCount;
+  private final int wordsPerMask;
+  private final int masksPerBuffer;
+  private final LongBuffer[] buffers;
+
+  private CalendarMasks(CalendarIndex calendar, TimeRange horizon) {
+    // The version is read first, so that a change made while the masks are built moves the
+    // calendar past it and the masks are never used.
+    this.calendar = calendar;
+    this.version = calendar.getVersion();
+    this.horizon = horizon;
+    this.granularity = calendar.getGranularity();
+    this.attendeeCount = calendar.getDictionary().size();
+
+    // Every mask is built in the same scratch mask on the heap, and then copied out.
+    AvailabilityMask scratch =
+        new AvailabilityMask(horizon.start(), horizon.duration(), granularity);
+    this.firstSlot = scratch.firstSlot();
+    this.wordsPerMask = scratch.wordCount();
+    this.masksPerBuffer = Math.max(1, MAX_WORDS_PER_BUFFER / Math.max(1, wordsPerMask));
+
+    int bufferCount = (attendeeCount + masksPerBuffer - 1) / masksPerBuffer;
+    this.buffers = new LongBuffer[bufferCount];
+    for (int i = 0; i < bufferCount; i++) {
+      int masks = Math.min(masksPerBuffer, attendeeCount - i * masksPerBuffer);
+      buffers[i] = ByteBuffer.allocateDirect(masks * wordsPerMask * Long.BYTES)
+          .order(ByteOrder.nativeOrder()).asLongBuffer();
+    }
+
+    for (int id = 0; id < attendeeCount; id++) {
+      scratch.clear();
+      IntervalList busySlots = calendar.getBusyIntervals(id);
+      for (int i = busySlots.indexOfFirstEndingAfter(horizon.start());
+          i < busySlots.size() && busySlots.start(i) < horizon.end(); i++) {
+        scratch.markBusy(busySlots.start(i), busySlots.end(i));
+      }
+      scratch.copyTo(buffers[id / masksPerBuffer], offsetOf(id));
+    }
+  }
+
+  /**
+   * Builds the masks of every attendee of {@code calendar} over {@code horizon}, with one bit per
+   * slot of the granularity of the calendar.
+   */
+  public static CalendarMasks of(CalendarIndex calendar, TimeRange horizon) {
+    return new CalendarMasks(calendar, horizon);
+  }
+
+  /**
+   * Returns the calendar that the masks were built from.
+   */
+  public CalendarIndex getCalendar() {
+    return calendar;
+  }
+
+  /**
+   * Returns the version of the calendar that the masks hold.
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Returns the times that the masks cover.
+   */
+  public TimeRange getHorizon() {
+    return horizon;
+  }
+
+  /**
+   * Returns the number of attendees that have a mask.
+   */
+  public int getAttendeeCount() {
+    return attendeeCount;
+  }
+
+  /**
+   * Returns how many bytes of memory outside of the heap the masks take.
+   */
+  public long getSizeInBytes() {
+    return (long) attendeeCount * wordsPerMask * Long.BYTES;
+  }
+
+  /**
+   * Checks whether the masks can answer a query against {@code calendar} within {@code window}:
+   * they must have been built from that calendar, which must not have changed since, and the
+   * window must be within the horizon.
+   */
+  public boolean covers(CalendarIndex calendar, TimeRange window) {
+    return calendar == this.calendar && calendar.getVersion() == version
+        && window.start() >= horizon.start() && window.end() <= horizon.end();
+  }
+
+  /**
+   * Marks the busy slots of the attendee with the given {@code id} in {@code mask}, which must be
+   * within the horizon and have the granularity of the calendar. Attendees without a mask, such as
+   * {@code AttendeeDictionary.UNKNOWN_ID}, are never busy.
+   */
+  void orInto(int id, AvailabilityMask mask) {
+    if (id < 0 || id >= attendeeCount) {
+      return;
+    }
+    mask.or(buffers[id / masksPerBuffer], offsetOf(id), wordsPerMask,
+        mask.firstSlot() - firstSlot);
+  }
+
+  private int offsetOf(int id) {
+    return (id % masksPerBuffer) * wordsPerMask;
+  }
+}
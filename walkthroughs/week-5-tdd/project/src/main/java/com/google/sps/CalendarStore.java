@@ -0,0 +1,94 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Holds the current calendar of a long-lived server, so that it is indexed once and then shared by
+ * every request.
+ *
+ * <p>Single events are added to and removed from the current calendar in place. Queries keep
+ * running without a lock while that happens, including the ones that read the tree of all events,
+ * since the calendar replaces the busy slots of an attendee and the tree instead of changing them.
+ * Writers wait for other writers that change the same attendees, and share one short lock on the
+ * tree that queries never take. A bulk import is then just many such changes, and queries are not
+ * slowed down by it.
+ *
+ * <p>A whole new set of events is indexed off to the side instead and then swapped in at once, so
+ * readers on other threads see either the old or the new calendar in full. Changes made to the old
+ * calendar while the new one is built are lost.
+ */
+public final class CalendarStore {
+  private volatile CalendarIndex calendar;
+
+  /**
+   * Creates a store whose calendar holds {@code events}.
+   */
+  public CalendarStore(Collection<Event> events) {
+    this.calendar = new CalendarIndex(events);
+  }
+
+  /**
+   * Returns the current calendar. Callers must only change it through the store.
+   */
+  public CalendarIndex getCalendar() {
+    return calendar;
+  }
+
+  /**
+   * Returns a read-only list of the events of the current calendar, sorted by start.
+   */
+  public List<Event> getEvents() {
+    return Collections.unmodifiableList(calendar.getEvents());
+  }
+
+  /**
+   * Adds {@code event} to the current calendar.
+   */
+  public void addEvent(Event event) {
+    calendar.addEvent(event);
+  }
+
+  /**
+   * Adds every one of {@code events} to the current calendar, one at a time, so queries never wait
+   * for the whole import.
+   */
+  public void addEvents(Collection<Event> events) {
+    CalendarIndex current = calendar;
+    for (Event event : events) {
+      current.addEvent(event);
+    }
+  }
+
+  /**
+   * Removes one copy of {@code event} from the current calendar.
+   *
+   * @return whether the event was in the calendar
+   */
+  public boolean removeEvent(Event event) {
+    return calendar.removeEvent(event);
+  }
+
+  /**
+   * Indexes {@code events} and makes them the current calendar. Requests that already got the old
+   * calendar keep using it until they are done.
+   */
+  public void replaceEvents(Collection<Event> events) {
+    calendar = new CalendarIndex(events);
+  }
+}
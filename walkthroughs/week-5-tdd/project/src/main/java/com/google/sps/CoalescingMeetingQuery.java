@@ -0,0 +1,126 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@code MeetingQuery} that runs a query only once when the same request comes in from several
+ * threads at the same time. The first thread runs it, and the others wait for its answer instead of
+ * working out the same thing again. Once the query is done, the next request runs it anew, so
+ * nothing is remembered past that, unlike with {@code CachingMeetingQuery}.
+ *
+ * <p>Requests are the same when their keys are, which ignores the order of the attendees. Only
+ * queries against a {@code CalendarIndex} are coalesced. A request that comes in while its calendar
+ * changes may get an answer from just before the change, as it would have if it came in earlier.
+ */
+public final class CoalescingMeetingQuery implements MeetingQuery {
+  private final MeetingQuery delegate;
+
+  // The queries that are running right now.
+  private final ConcurrentHashMap<MeetingQueryKey, FutureTask<Collection<TimeRange>>> inFlight =
+      new ConcurrentHashMap<>();
+
+  private final AtomicLong coalescedCount = new AtomicLong();
+
+  public CoalescingMeetingQuery(MeetingQuery delegate) {
+    this.delegate = delegate;
+  }
+
+  /**
+   * Not coalesced, since collections of events cannot be told apart cheaply.
+   */
+  @Override
+  public Collection<TimeRange> query(Collection<Event> events, MeetingRequest request) {
+    return delegate.query(events, request);
+  }
+
+  /**
+   * Returns a read-only answer, which may be shared with other callers.
+   */
+  @Override
+  public Collection<TimeRange> query(final CalendarIndex calendar, final int[] attendeeIds,
+      final int[] optionalAttendeeIds, final long duration, final TimeRange window) {
+    MeetingQueryKey key =
+        new MeetingQueryKey(calendar, attendeeIds, optionalAttendeeIds, duration, window);
+    FutureTask<Collection<TimeRange>> task =
+        new FutureTask<>(new Callable<Collection<TimeRange>>() {
+          @Override
+          public Collection<TimeRange> call() {
+            return Collections.unmodifiableList(new ArrayList<>(
+                delegate.query(calendar, attendeeIds, optionalAttendeeIds, duration, window)));
+          }
+        });
+
+    FutureTask<Collection<TimeRange>> running = inFlight.putIfAbsent(key, task);
+    if (running == null) {
+      // This thread runs the query. It is taken off the map right after, so only the requests
+      // that came in while it ran share its answer.
+      running = task;
+      try {
+        task.run();
+      } finally {
+        inFlight.remove(key, task);
+      }
+    } else {
+      coalescedCount.incrementAndGet();
+    }
+    return getAnswer(running);
+  }
+
+  /**
+   * Returns how many queries waited for the answer of another one instead of running.
+   */
+  public long getCoalescedCount() {
+    return coalescedCount.get();
+  }
+
+  /**
+   * Waits for the answer of {@code task}, even if the thread is interrupted, since the query cannot
+   * be left half done. Failures of the query are thrown to every caller that waited for it.
+   */
+  private static Collection<TimeRange> getAnswer(FutureTask<Collection<TimeRange>> task) {
+    boolean interrupted = false;
+    try {
+      while (true) {
+        try {
+          return task.get();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+          }
+          if (cause instanceof Error) {
+            throw (Error) cause;
+          }
+          throw new IllegalStateException(cause);
+        }
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
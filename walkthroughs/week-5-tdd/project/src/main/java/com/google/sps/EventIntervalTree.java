@@ -0,0 +1,304 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A balanced search tree of events, ordered by the start and then the end of {@code
+ * Event.getWhen()}. Every node also remembers the latest end in its subtree, so the events that
+ * overlap a window can be found without looking at the ones that end before it or start after it.
+ * Adding and removing an event take {@code O(log n)} time, and finding the {@code k} events that
+ * overlap a window takes {@code O(log n + k)} time.
+ *
+ * <p>Events with the same time range share one node, and the same event can be added more than
+ * once.
+ *
+ * <p>Nodes are never changed once they are built. A change builds new copies of the {@code O(log
+ * n)} nodes on the path to the event and then publishes the new root, so readers never take a lock:
+ * every read sees the whole tree as it was either before or after a change. Changes themselves
+ * must be made one at a time, such as under a lock.
+ */
+public final class EventIntervalTree {
+  // Replaced, never changed, on every change.
+  private volatile Node root;
+  private volatile int size;
+
+  /**
+   * Returns the number of events in the tree, counting every copy of the same event.
+   */
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Adds {@code event} to the tree.
+   */
+  public void add(Event event) {
+    root = insert(root, event);
+    size++;
+  }
+
+  /**
+   * Removes one copy of {@code event} from the tree.
+   *
+   * @return whether the event was in the tree
+   */
+  public boolean remove(Event event) {
+    TimeRange when = event.getWhen();
+    Node node = find(root, when.start(), when.end());
+    int index = node == null ? -1 : Arrays.asList(node.events).indexOf(event);
+    if (index < 0) {
+      return false;
+    }
+
+    if (node.events.length == 1) {
+      root = delete(root, when.start(), when.end());
+    } else {
+      Event[] events = new Event[node.events.length - 1];
+      System.arraycopy(node.events, 0, events, 0, index);
+      System.arraycopy(node.events, index + 1, events, index, events.length - index);
+      root = replace(root, when.start(), when.end(), events);
+    }
+    size--;
+    return true;
+  }
+
+  /**
+   * Returns the events that take up some time between the start (inclusive) and the end
+   * (exclusive) of {@code window}, sorted by start. Events that take no time overlap nothing.
+   */
+  public List<Event> getOverlapping(TimeRange window) {
+    return getOverlapping(window, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Same as {@code getOverlapping(window)}, but gives up and returns null as soon as more than
+   * {@code limit} events are found, so a caller that only wants a few pays for no more than those.
+   */
+  public List<Event> getOverlapping(TimeRange window, int limit) {
+    List<Event> overlapping = new ArrayList<>();
+    if (!collectOverlapping(root, window.start(), window.end(), limit, overlapping)) {
+      return null;
+    }
+    return overlapping;
+  }
+
+  /**
+   * Returns every event in the tree, sorted by start, including the ones that take no time.
+   */
+  public List<Event> getAll() {
+    List<Event> all = new ArrayList<>(size);
+    collectAll(root, all);
+    return all;
+  }
+
+  private static void collectAll(Node node, List<Event> all) {
+    if (node != null) {
+      collectAll(node.left, all);
+      all.addAll(Arrays.asList(node.events));
+      collectAll(node.right, all);
+    }
+  }
+
+  /**
+   * Adds the events of {@code node} and its subtree that overlap the window to {@code overlapping},
+   * and returns false once there are more than {@code limit} of them.
+   */
+  private static boolean collectOverlapping(
+      Node node, int windowStart, int windowEnd, int limit, List<Event> overlapping) {
+    // Nothing in this subtree ends after the window starts, so none of it can overlap the window.
+    if (node == null || node.maxEnd <= windowStart) {
+      return true;
+    }
+
+    if (!collectOverlapping(node.left, windowStart, windowEnd, limit, overlapping)) {
+      return false;
+    }
+
+    // Everything to the right starts at or after this node, so once a node starts after the window
+    // the right subtree can be skipped as well.
+    if (node.start >= windowEnd) {
+      return true;
+    }
+    if (node.end > windowStart && node.end > node.start) {
+      overlapping.addAll(Arrays.asList(node.events));
+      if (overlapping.size() > limit) {
+        return false;
+      }
+    }
+    return collectOverlapping(node.right, windowStart, windowEnd, limit, overlapping);
+  }
+
+  private static Node find(Node node, int start, int end) {
+    while (node != null) {
+      int order = compare(start, end, node);
+      if (order == 0) {
+        return node;
+      }
+      node = order < 0 ? node.left : node.right;
+    }
+    return null;
+  }
+
+  private static Node insert(Node node, Event event) {
+    TimeRange when = event.getWhen();
+    if (node == null) {
+      return new Node(when.start(), when.end(), new Event[] {event}, null, null);
+    }
+
+    int order = compare(when.start(), when.end(), node);
+    if (order == 0) {
+      Event[] events = Arrays.copyOf(node.events, node.events.length + 1);
+      events[node.events.length] = event;
+      return node.withEvents(events);
+    }
+
+    if (order < 0) {
+      return rebalance(node.withChildren(insert(node.left, event), node.right));
+    }
+    return rebalance(node.withChildren(node.left, insert(node.right, event)));
+  }
+
+  /**
+   * Returns a copy of the subtree of {@code node} in which the node for {@code start} and {@code
+   * end}, which must be in it, holds {@code events} instead.
+   */
+  private static Node replace(Node node, int start, int end, Event[] events) {
+    int order = compare(start, end, node);
+    if (order == 0) {
+      return node.withEvents(events);
+    }
+    return order < 0
+        ? node.withChildren(replace(node.left, start, end, events), node.right)
+        : node.withChildren(node.left, replace(node.right, start, end, events));
+  }
+
+  private static Node delete(Node node, int start, int end) {
+    if (node == null) {
+      return null;
+    }
+
+    int order = compare(start, end, node);
+    if (order < 0) {
+      return rebalance(node.withChildren(delete(node.left, start, end), node.right));
+    }
+    if (order > 0) {
+      return rebalance(node.withChildren(node.left, delete(node.right, start, end)));
+    }
+    if (node.left == null) {
+      return node.right;
+    }
+    if (node.right == null) {
+      return node.left;
+    }
+
+    // Replace the node with the first node of its right subtree, which keeps the order.
+    Node successor = node.right;
+    while (successor.left != null) {
+      successor = successor.left;
+    }
+    return rebalance(new Node(successor.start, successor.end, successor.events, node.left,
+        delete(node.right, successor.start, successor.end)));
+  }
+
+  /**
+   * Restores the AVL balance of {@code node}, whose subtrees are balanced and differ in height by
+   * at most two, and returns the new root of the subtree.
+   */
+  private static Node rebalance(Node node) {
+    int balance = height(node.left) - height(node.right);
+    if (balance > 1) {
+      Node left = node.left;
+      if (height(left.left) < height(left.right)) {
+        left = rotateLeft(left);
+      }
+      return rotateRight(node.withChildren(left, node.right));
+    }
+    if (balance < -1) {
+      Node right = node.right;
+      if (height(right.right) < height(right.left)) {
+        right = rotateRight(right);
+      }
+      return rotateLeft(node.withChildren(node.left, right));
+    }
+    return node;
+  }
+
+  private static Node rotateLeft(Node node) {
+    Node right = node.right;
+    return right.withChildren(node.withChildren(node.left, right.left), right.right);
+  }
+
+  private static Node rotateRight(Node node) {
+    Node left = node.left;
+    return left.withChildren(left.left, node.withChildren(left.right, node.right));
+  }
+
+  private static int height(Node node) {
+    return node == null ? 0 : node.height;
+  }
+
+  private static int compare(int start, int end, Node node) {
+    int order = Integer.compare(start, node.start);
+    return order != 0 ? order : Integer.compare(end, node.end);
+  }
+
+  private static final class Node {
+    final int start;
+    final int end;
+
+    // Every event, including copies of the same event, whose time range is [start, end).
+    final Event[] events;
+
+    final Node left;
+    final Node right;
+    final int height;
+
+    // The latest end of any event in this subtree.
+    final int maxEnd;
+
+    Node(int start, int end, Event[] events, Node left, Node right) {
+      this.start = start;
+      this.end = end;
+      this.events = events;
+      this.left = left;
+      this.right = right;
+      this.height = 1 + Math.max(height(left), height(right));
+      int maxEnd = end;
+      if (left != null) {
+        maxEnd = Math.max(maxEnd, left.maxEnd);
+      }
+      if (right != null) {
+        maxEnd = Math.max(maxEnd, right.maxEnd);
+      }
+      this.maxEnd = maxEnd;
+    }
+
+    Node withChildren(Node left, Node right) {
+      return new Node(start, end, events, left, right);
+    }
+
+    Node withEvents(Event[] events) {
+      return new Node(start, end, events, left, right);
+    }
+  }
+}
@@ -17,228 +17,254 @@ package com.google.sps;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Comparator;
-import java.util.Set;
-import java.util.HashMap;
-import java.util.HashSet;
 
-public final class FindMeetingQuery {
+public final class FindMeetingQuery implements MeetingQuery {
+  @Override
   public Collection<TimeRange> query(Collection<Event> events, MeetingRequest request) {
-    // Assume that one person does not have two meetings at the same time
-    
+    return query(new CalendarIndex(events), request);
+  }
+
+  /**
+  * Works on attendee IDs of a calendar that was built in advance so that the cost of a request only
+  * depends on the requested attendees and on how many of their busy slots fall in the window
+  */
+  @Override
+  public Collection<TimeRange> query(CalendarIndex calendar, int[] mandatoryAttendees,
+      int[] optionalAttendees, long duration, TimeRange window) {
     //Step 0: Process the raw information
-    int meetingDuration = (int) request.getDuration();
-    Collection<String> mandatoryAttendees = request.getAttendees();
-    Collection<String> optionalAttendees = request.getOptionalAttendees();
+    int meetingDuration = (int) duration;
     ArrayList<TimeRange> availableSlots = new ArrayList<TimeRange>();
 
-    // If no attendees, then the whole day is available for the request (assume duration <= 1 day)
-    if (mandatoryAttendees.isEmpty() && optionalAttendees.isEmpty()){
-        availableSlots.add(TimeRange.WHOLE_DAY);
+    // If no attendees, then the whole window is available for the request (assume duration <= window)
+    if (mandatoryAttendees.length == 0 && optionalAttendees.length == 0){
+        availableSlots.add(window);
         return availableSlots;
         
     } else { // There are some attendees, either optional or mandatory ones
-        // Step 1: Store the information of the mandatory attenddees provided in events
-
-        // commonCalendar is a lookup table where each person's name is the key
-        // and the associated values are the times in the day when they are busy
-        HashMap<String, ArrayList<TimeRange>> commonCalendar = createCommonCalendar(events);
-
-        // Step 2: Return calendars based on whether there are only mandatory attendees, optional attendees, or both
-        if (!mandatoryAttendees.isEmpty() && optionalAttendees.isEmpty()) {
-            ArrayList<TimeRange> allAvailableSlots = getFreeTimeSlots(commonCalendar, mandatoryAttendees);
-            availableSlots = TimeRange.getRangesLongEnough(allAvailableSlots, meetingDuration);
-            return availableSlots;
+        // The calendar is a lookup table where each person's ID is the key
+        // and the associated values are the times in the day when they are busy.
+        // All the work below is done on IntervalLists, and TimeRanges are only created for the answer.
+
+        // Step 1: Return calendars based on whether there are only mandatory attendees, optional attendees, or both
+        if (mandatoryAttendees.length > 0 && optionalAttendees.length == 0) {
+            IntervalList allAvailableSlots = getFreeTimeSlots(calendar, mandatoryAttendees, window);
+            return allAvailableSlots.removeShorterThan(meetingDuration).toTimeRanges();
         
-        } else if (mandatoryAttendees.isEmpty() && !optionalAttendees.isEmpty()) {
+        } else if (mandatoryAttendees.length == 0 && optionalAttendees.length > 0) {
 
-            ArrayList<TimeRange> availableOptional = getFreeTimeSlots(commonCalendar, optionalAttendees);
-            ArrayList<TimeRange> availableOptionalOnly = TimeRange.getRangesLongEnough(availableOptional, meetingDuration);
-            return availableOptionalOnly;
+            IntervalList availableOptional = getFreeTimeSlots(calendar, optionalAttendees, window);
+            return availableOptional.removeShorterThan(meetingDuration).toTimeRanges();
 
         } else { // Both mandatory and optional attendees are present
             // Get the slots that work for optional attendees and check if any of them overlap with 
             // available slots for mandatory attendees. If yes, then return available slots. 
 
-            ArrayList<TimeRange> allAvailableSlots = getFreeTimeSlots(commonCalendar, mandatoryAttendees);
-            availableSlots = TimeRange.getRangesLongEnough(allAvailableSlots, meetingDuration);
+            IntervalList availableMandatory = getFreeTimeSlots(calendar, mandatoryAttendees, window);
+            availableMandatory.removeShorterThan(meetingDuration);
 
             // Do not check long enough ranges because duration is checked when finding the intersection
-            ArrayList<TimeRange> availableOptional = getFreeTimeSlots(commonCalendar, optionalAttendees);
+            IntervalList availableOptional = getFreeTimeSlots(calendar, optionalAttendees, window);
 
-            ArrayList<TimeRange> availableWithOptional = getIntersectionWith(availableSlots, availableOptional, meetingDuration);
+            IntervalList availableWithOptional = availableMandatory.intersect(availableOptional, meetingDuration);
 
             // If there are some slots that work for all mandatory and optional attendees, then return 
-            if (!availableWithOptional.isEmpty()) return TimeRange.getUniqueSortedSlots(availableWithOptional);
+            if (!availableWithOptional.isEmpty()) return availableWithOptional.toTimeRanges();
 
             // Otherwise, just return the slots that work for mandatory attendees
-            return availableSlots;
+            return availableMandatory.toTimeRanges();
         }
     }
   }
   
   /**
-  * Create a common calendar that stores all occcupied time slots of people from a collection of events
+  * Same as query(calendar, request, window), but yields the slots one at a time in start order.
+  * Busy slots are merged only as far as needed to find the next free slot, so a caller that stops
+  * after the first few slots skips most of the work.
   */
-  private HashMap<String, ArrayList<TimeRange>> createCommonCalendar(Collection<Event> events) {
-    HashMap<String, ArrayList<TimeRange>> commonCalendar = new HashMap<String, ArrayList<TimeRange>>(); 
-
-    for (Event event: events) {
-        for (String attendee: event.getAttendees()){
-            if (commonCalendar.containsKey(attendee)) {
-                commonCalendar.get(attendee).add(event.getWhen());
-            } else {
-                ArrayList<TimeRange> occupiedSlots = new ArrayList<TimeRange>();
-                occupiedSlots.add(event.getWhen());
-                commonCalendar.put(attendee, occupiedSlots);
-            }
-        }
+  public Iterator<TimeRange> iterator(
+      CalendarIndex calendar, MeetingRequest request, TimeRange window) {
+    int meetingDuration = (int) request.getDuration();
+    int[] mandatoryAttendees = calendar.getAttendeeIds(request.getAttendees());
+    int[] optionalAttendees = calendar.getAttendeeIds(request.getOptionalAttendees());
+
+    // Same cases as query: no attendees, only one kind of attendees, or both
+    if (mandatoryAttendees.length == 0 && optionalAttendees.length == 0) {
+        return Collections.singletonList(window).iterator();
+    } else if (optionalAttendees.length == 0) {
+        return new FreeSlotIterator(calendar, mandatoryAttendees, window, meetingDuration);
+    } else if (mandatoryAttendees.length == 0) {
+        return new FreeSlotIterator(calendar, optionalAttendees, window, meetingDuration);
     }
 
-    return commonCalendar;
+    // The slots that work for everyone are the long enough slots in which nobody is busy.
+    // Only if there are none does the iterator have to scan the whole window before falling back.
+    int[] everyone = new int[mandatoryAttendees.length + optionalAttendees.length];
+    System.arraycopy(mandatoryAttendees, 0, everyone, 0, mandatoryAttendees.length);
+    System.arraycopy(
+        optionalAttendees, 0, everyone, mandatoryAttendees.length, optionalAttendees.length);
+    Iterator<TimeRange> availableWithOptional =
+        new FreeSlotIterator(calendar, everyone, window, meetingDuration);
+    if (availableWithOptional.hasNext()) {
+        return availableWithOptional;
+    }
+    return new FreeSlotIterator(calendar, mandatoryAttendees, window, meetingDuration);
   }
 
   /**
-  * Given a calendar, a list of attendees and meeting duration, return a list of all free time slots
-  * Duration is not taken into account
+  * Return at most the first k slots of query(calendar, request, window), without finding the rest
   */
-  private ArrayList<TimeRange> getFreeTimeSlots(HashMap<String, ArrayList<TimeRange>> commonCalendar, Collection<String> attendees){
-    // Step 1: Find all occupied slots of relevent people based on the list of attendees
-    ArrayList<TimeRange> allOccupiedSlots = getAllOccupiedSlots(commonCalendar, attendees);
-
-    // Step 2: Find all possible windows by merging occupied ones and fine the (inverse selection) of those times
-    // Step 2a: Sort the allOccupiedSlots
-    Collections.sort(allOccupiedSlots, TimeRange.ORDER_BY_START);
-
-    // Step 2b: Get a concise version of all occupied slots (merge overlapping ones)
-    allOccupiedSlots = getOverlappedSlots(allOccupiedSlots);
-
-    // Step 2c: Get the available slots
-    ArrayList<TimeRange> allAvailableSlots = getInverseSlots(allOccupiedSlots);
-    return allAvailableSlots;
+  public List<TimeRange> queryFirst(
+      CalendarIndex calendar, MeetingRequest request, TimeRange window, int k) {
+    List<TimeRange> firstSlots = new ArrayList<TimeRange>();
+    Iterator<TimeRange> slots = iterator(calendar, request, window);
+    while (firstSlots.size() < k && slots.hasNext()) {
+        firstSlots.add(slots.next());
+    }
+    return firstSlots;
   }
 
   /**
-  * @return an arrayList of all occupied slots from a common calendar of attendees
+  * Return at most k meetings of the requested duration within the window, nearest to preferredStart first,
+  * with one meeting in each free slot, placed as close to preferredStart as the slot allows.
+  * The slots are the ones query(calendar, request, window) would return, but they are found by walking
+  * outward from preferredStart through the busy slots instead of computing all of them.
   */
-  private ArrayList<TimeRange> getAllOccupiedSlots(HashMap<String, ArrayList<TimeRange>> calendar, Collection<String> attendees){
-    ArrayList<TimeRange> allOccupiedSlots = new ArrayList<TimeRange>();
-    for (String attendee: attendees){
-        if (calendar.containsKey(attendee)) {
-            ArrayList<TimeRange> occupiedSlots = calendar.get(attendee);
-            for (TimeRange occupiedSlot: occupiedSlots) {
-                allOccupiedSlots.add(occupiedSlot);
-            }
-        } else {// The attendee is not in the database yet, which means this attendee is assumed to be free all day
-            allOccupiedSlots.add(TimeRange.fromStartEnd(0, 0, false));
-        } 
+  public List<TimeRange> queryNearest(CalendarIndex calendar, MeetingRequest request, TimeRange window,
+      int preferredStart, int k) {
+    int meetingDuration = (int) request.getDuration();
+    int[] mandatoryAttendees = calendar.getAttendeeIds(request.getAttendees());
+    int[] optionalAttendees = calendar.getAttendeeIds(request.getOptionalAttendees());
+
+    // Prefer meetings that also work for optional attendees, like query does
+    if (mandatoryAttendees.length > 0 && optionalAttendees.length > 0) {
+        int[] everyone = new int[mandatoryAttendees.length + optionalAttendees.length];
+        System.arraycopy(mandatoryAttendees, 0, everyone, 0, mandatoryAttendees.length);
+        System.arraycopy(
+            optionalAttendees, 0, everyone, mandatoryAttendees.length, optionalAttendees.length);
+        List<TimeRange> nearestWithOptional = new NearestSlotFinder(calendar, everyone, window,
+            meetingDuration).findNearest(preferredStart, k);
+        if (!nearestWithOptional.isEmpty()) {
+            return nearestWithOptional;
+        }
     }
-    return allOccupiedSlots;
-  }
-  
-  /**
-  * @param an ArrayList of timeslots sorted by start, can be occupied or unoccupied
-  * @return all overlap time slots 
-  */
-  private ArrayList<TimeRange> getOverlappedSlots(ArrayList<TimeRange> timeSlots) {
-      ArrayList<TimeRange> overlappedSlots = new ArrayList<TimeRange>();
-      if (timeSlots.isEmpty()){
-          return overlappedSlots;
-      }
-
-      // Start from the first time slot, return the most concise treeset of time slots (that are either occupied or not)
-      TimeRange overlappedSlot = timeSlots.get(0);
-
-      if (timeSlots.size() == 1) {
-          overlappedSlots.add(overlappedSlot);
-          return overlappedSlots;
-      }
-      
-      boolean inclusive = false;
-      // There are at least two things in timeSlots
-      for (int i = 1; i < timeSlots.size(); i++){
-
-          if (timeSlots.get(i).overlaps(overlappedSlot)){
-              if (timeSlots.get(i).end() == TimeRange.END_OF_DAY) {inclusive = true;}
-              overlappedSlot = overlappedSlot.mergeOverlapped(timeSlots.get(i), inclusive);
-              if (i == timeSlots.size() - 1) {// If this is the last time slot
-                    overlappedSlots.add(overlappedSlot);
-              }
-          } else {
-              overlappedSlots.add(overlappedSlot);
-              overlappedSlot = timeSlots.get(i);
-              if (i == timeSlots.size() - 1) {
-                  overlappedSlots.add(overlappedSlot);
-              }
-          }
-      }
-
-      return overlappedSlots;
+
+    int[] attendees = mandatoryAttendees.length > 0 ? mandatoryAttendees : optionalAttendees;
+    return new NearestSlotFinder(calendar, attendees, window, meetingDuration)
+        .findNearest(preferredStart, k);
   }
 
   /**
-  * @param timeSlots an arrayList of TimeRanges that are sorted whose elements do not overlap (has gone through getOverlappedSlots)
-  * @return the other slots in a day
+  * Same as query(events, request), but maximizes the number of optional attendees instead of
+  * dropping all of them as soon as one cannot make it
   */
-  private ArrayList<TimeRange> getInverseSlots(ArrayList<TimeRange> timeSlots){
-       
-       ArrayList<TimeRange> otherSlots = new ArrayList<TimeRange>();
-       if (timeSlots.isEmpty()) {return otherSlots;}
-
-       // Assume that timeSlots only get the most concise slots, and the last slot also ends the latest
-    
-       if (timeSlots.get(0).start() > TimeRange.START_OF_DAY) {
-           otherSlots.add(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, timeSlots.get(0).start(), false));
-       }
-
-       // All elements in timeSlots do not overlap
-       for (int i = 0; i < timeSlots.size() - 1; i++) {
-           TimeRange otherSlot = TimeRange.fromStartEnd(timeSlots.get(i).end(), timeSlots.get(i+1).start(), false);
-           otherSlots.add(otherSlot);
-       }
-    
-       // The order is reserved
-       if (timeSlots.get(timeSlots.size()-1).end() < TimeRange.END_OF_DAY) {
-           otherSlots.add(TimeRange.fromStartEnd(timeSlots.get(timeSlots.size()-1).end(), TimeRange.END_OF_DAY, true));
-       }
-
-       return otherSlots;
+  public Collection<TimeRange> queryMaximizingOptional(
+      Collection<Event> events, MeetingRequest request) {
+    return queryMaximizingOptional(new CalendarIndex(events), request, TimeRange.WHOLE_DAY);
   }
-  
-  
+
   /**
-  * @return a list of intersecting time ranges with primary slots as the starting point. The returned time ranges must satisfy the duration.
+  * Return the slots within the window that work for every mandatory attendee and for as many optional
+  * attendees as possible. Every meeting of the requested duration that fits in one of the returned
+  * slots is attended by the same, largest possible, number of optional attendees.
+  * Two returned slots may overlap when different groups of optional attendees can make each of them.
+  *
+  * Instead of trying subsets of optional attendees, count for every minute a meeting could start at
+  * how many optional attendees are free for the whole meeting, so the cost is linear in the size of
+  * the window and in the number of busy slots of the attendees.
   */
-  private ArrayList<TimeRange> getIntersectionWith(ArrayList<TimeRange> primarySlots, ArrayList<TimeRange> optionalSlots, int duration) {
-      ArrayList<TimeRange> intersectionSlots = new ArrayList<TimeRange>();
-
-      for (TimeRange primary: primarySlots){
-        for (TimeRange optional: optionalSlots) {
-
-            // If there is no overlap, then doesn't care about optional available slots
-            if (primary.overlaps(optional)) {
-                if (optional.contains(primary)) {
-                    intersectionSlots.add(primary);
-
-                } else if (primary.contains(optional) && !primary.equals(optional)) {
-                    if (optional.hasEnoughTime(duration)) {intersectionSlots.add(optional);}
-
-                } else { // Two slots overlap but one does not contain another
-                    TimeRange newSlot = primary.getIntersection(optional);
-                    if (newSlot.hasEnoughTime(duration)) {intersectionSlots.add(newSlot);}
-                }
-
-            // If there is no current overlap with the optional slot and no future overlaps, 
-            // then no overlap with next optional slots in this iteration
-            } else {
-                if (primary.start() < optional.start()) {break;} 
-                //There maybe future overlaps, so skip this iteration
+  public Collection<TimeRange> queryMaximizingOptional(
+      CalendarIndex calendar, MeetingRequest request, TimeRange window) {
+    int meetingDuration = (int) request.getDuration();
+    int[] mandatoryAttendees = calendar.getAttendeeIds(request.getAttendees());
+    int[] optionalAttendees = calendar.getAttendeeIds(request.getOptionalAttendees());
+
+    // Step 1: Find the slots that work for mandatory attendees.
+    // With no optional attendees there is nothing to maximize.
+    IntervalList availableMandatory = getFreeTimeSlots(calendar, mandatoryAttendees, window);
+    availableMandatory.removeShorterThan(meetingDuration);
+    if (availableMandatory.isEmpty() || optionalAttendees.length == 0) {
+        return availableMandatory.toTimeRanges();
+    }
+
+    // Step 2: Build a difference array over start minutes (relative to the window start).
+    // An optional attendee who is free from gapStart to gapEnd can go to every meeting starting
+    // from gapStart up to gapEnd - duration, so that whole run of starts gets +1.
+    int[] attendance = new int[window.duration() + 2];
+    IntervalList busySlots = new IntervalList();
+    for (int attendee: optionalAttendees){
+        busySlots.clear();
+        busySlots.addAllWithin(calendar.getBusyIntervals(attendee), window.start(), window.end());
+        IntervalList freeSlots = busySlots.invert(window.start(), window.end());
+        for (int i = 0; i < freeSlots.size(); i++) {
+            if (freeSlots.end(i) - freeSlots.start(i) >= meetingDuration) {
+                attendance[freeSlots.start(i) - window.start()]++;
+                attendance[freeSlots.end(i) - meetingDuration + 1 - window.start()]--;
             }
         }
     }
 
-    return intersectionSlots;
+    // Step 3: Prefix sums turn the difference array into the number of optional attendees for each start
+    for (int i = 1; i < attendance.length; i++) {
+        attendance[i] += attendance[i - 1];
+    }
+
+    // Step 4: Find the best attendance among the starts that also work for mandatory attendees
+    int bestAttendance = 0;
+    for (int i = 0; i < availableMandatory.size(); i++) {
+        int lastStart = availableMandatory.end(i) - meetingDuration;
+        for (int start = availableMandatory.start(i); start <= lastStart; start++) {
+            bestAttendance = Math.max(bestAttendance, attendance[start - window.start()]);
+        }
+    }
+
+    // Step 5: Every run of starts with the best attendance becomes one slot, from the first start
+    // to the end of a meeting at the last start
+    IntervalList bestSlots = new IntervalList();
+    for (int i = 0; i < availableMandatory.size(); i++) {
+        int lastStart = availableMandatory.end(i) - meetingDuration;
+        boolean inRun = false;
+        int runStart = 0;
+        for (int start = availableMandatory.start(i); start <= lastStart + 1; start++) {
+            boolean isBest = start <= lastStart && attendance[start - window.start()] == bestAttendance;
+            if (isBest && !inRun) {
+                inRun = true;
+                runStart = start;
+            } else if (!isBest && inRun) {
+                inRun = false;
+                bestSlots.add(runStart, start - 1 + meetingDuration);
+            }
+        }
+    }
+    return bestSlots.toTimeRanges();
   }
 
+  /**
+  * Given a calendar and the IDs of some attendees, return a list of all free time slots within the window
+  * Duration is not taken into account
+  */
+  private IntervalList getFreeTimeSlots(CalendarIndex calendar, int[] attendees, TimeRange window){
+    // Step 1: Walk through the occupied slots of all attendees in start order.
+    // Every attendee's slots are already sorted in the calendar, so they are merged with a heap instead of sorted again.
+    // People who are not in the calendar are free all day, so they add nothing.
+    // Only the slots that overlap the window are read, from the event tree when the window holds few events.
+    BusySlotMerger occupiedSlots =
+        new BusySlotMerger(calendar.getBusyIntervals(attendees, window), window.start());
+
+    // Step 2: Find the gaps between the occupied slots as they come, merging overlapping ones on the way
+    // and cutting busy slots that cross the edges of the window
+    IntervalList availableSlots = new IntervalList();
+    int cursor = window.start();
+    while (cursor < window.end() && occupiedSlots.next()){
+        if (occupiedSlots.start() > cursor){
+            availableSlots.add(cursor, Math.min(occupiedSlots.start(), window.end()));
+        }
+        cursor = Math.max(cursor, occupiedSlots.end());
+    }
+    if (cursor < window.end()){
+        availableSlots.add(cursor, window.end());
+    }
+    return availableSlots;
+  }
 }
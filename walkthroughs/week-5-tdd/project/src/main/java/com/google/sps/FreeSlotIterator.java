@@ -0,0 +1,87 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Yields, in start order, the times within a window when a group of attendees is free for at least
+ * a given number of minutes. Slots are found one at a time: the sorted busy slots of the attendees
+ * are merged on the fly by a {@code BusySlotMerger}, so a caller that only takes the first few slots
+ * never looks at the busy slots after them.
+ */
+final class FreeSlotIterator implements Iterator<TimeRange> {
+  private final BusySlotMerger busySlots;
+  private final int windowEnd;
+  private final int minDuration;
+
+  // Everyone is busy until this time, as far as the busy slots taken so far go.
+  private int cursor;
+
+  private TimeRange next;
+
+  /**
+   * Creates an iterator over the free slots of the attendees with the given IDs in {@code
+   * calendar} that are within {@code window} and at least {@code minDuration} long.
+   */
+  FreeSlotIterator(CalendarIndex calendar, int[] attendees, TimeRange window, int minDuration) {
+    this.busySlots = new BusySlotMerger(calendar, attendees, window.start());
+    this.windowEnd = window.end();
+    this.minDuration = minDuration;
+    this.cursor = window.start();
+    next = findNext();
+  }
+
+  @Override
+  public boolean hasNext() {
+    return next != null;
+  }
+
+  @Override
+  public TimeRange next() {
+    if (next == null) {
+      throw new NoSuchElementException();
+    }
+    TimeRange slot = next;
+    next = findNext();
+    return slot;
+  }
+
+  /**
+   * Takes busy slots until a long enough gap shows up before the next one, and returns that gap,
+   * or null when the window has no more of them.
+   */
+  private TimeRange findNext() {
+    while (cursor < windowEnd) {
+      if (!busySlots.next()) {
+        int start = cursor;
+        cursor = windowEnd;
+        if (windowEnd - start >= minDuration) {
+          return TimeRange.fromStartEnd(start, windowEnd, false);
+        }
+        return null;
+      }
+
+      int gapStart = cursor;
+      int gapEnd = Math.min(busySlots.start(), windowEnd);
+      cursor = Math.max(cursor, busySlots.end());
+      if (gapEnd > gapStart && gapEnd - gapStart >= minDuration) {
+        return TimeRange.fromStartEnd(gapStart, gapEnd, false);
+      }
+    }
+    return null;
+  }
+}
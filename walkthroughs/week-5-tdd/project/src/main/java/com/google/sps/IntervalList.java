@@ -0,0 +1,295 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A growable list of time intervals stored as primitive values rather than {@code TimeRange}
+ * objects. Each interval is packed into one {@code long}, with the start in the upper 32 bits and
+ * the exclusive end in the lower 32 bits, so that sorting the packed values sorts the intervals by
+ * start. The scheduler works on these lists and only creates {@code TimeRange} objects for the
+ * final answer.
+ */
+public final class IntervalList {
+  private static final int DEFAULT_CAPACITY = 8;
+  private static final long[] EMPTY = new long[0];
+
+  private long[] intervals;
+  private int size;
+
+  /**
+   * Creates an empty list.
+   */
+  public IntervalList() {
+    this.intervals = EMPTY;
+  }
+
+  /**
+   * Creates an empty list that can hold {@code capacity} intervals before it has to grow.
+   */
+  public IntervalList(int capacity) {
+    this.intervals = capacity > 0 ? new long[capacity] : EMPTY;
+  }
+
+  /**
+   * Creates a list with the same intervals as {@code ranges}, in the same order.
+   */
+  public static IntervalList fromTimeRanges(Collection<TimeRange> ranges) {
+    IntervalList list = new IntervalList(ranges.size());
+    for (TimeRange range : ranges) {
+      list.add(range.start(), range.end());
+    }
+    return list;
+  }
+
+  /**
+   * Returns the number of intervals in the list.
+   */
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Returns the start of the interval at {@code index}.
+   */
+  public int start(int index) {
+    return (int) (intervals[index] >> 32);
+  }
+
+  /**
+   * Returns the exclusive end of the interval at {@code index}.
+   */
+  public int end(int index) {
+    return (int) intervals[index];
+  }
+
+  /**
+   * Appends the interval from {@code start} (inclusive) to {@code end} (exclusive).
+   */
+  public void add(int start, int end) {
+    if (size == intervals.length) {
+      intervals = Arrays.copyOf(intervals, Math.max(DEFAULT_CAPACITY, size * 2));
+    }
+    intervals[size++] = pack(start, end);
+  }
+
+  /**
+   * Appends every interval of {@code other}.
+   */
+  public void addAll(IntervalList other) {
+    if (size + other.size > intervals.length) {
+      int capacity = Math.max(DEFAULT_CAPACITY, Math.max(size * 2, size + other.size));
+      intervals = Arrays.copyOf(intervals, capacity);
+    }
+    System.arraycopy(other.intervals, 0, intervals, size, other.size);
+    size += other.size;
+  }
+
+  /**
+   * Appends every interval of {@code other} that overlaps {@code windowStart} (inclusive) to
+   * {@code windowEnd} (exclusive). The intervals are appended whole, not cut to the window.
+   * {@code other} must be sorted and merged.
+   */
+  public void addAllWithin(IntervalList other, int windowStart, int windowEnd) {
+    int from = other.indexOfFirstEndingAfter(windowStart);
+    int to = from;
+    while (to < other.size && other.start(to) < windowEnd) {
+      to++;
+    }
+
+    int count = to - from;
+    if (size + count > intervals.length) {
+      int capacity = Math.max(DEFAULT_CAPACITY, Math.max(size * 2, size + count));
+      intervals = Arrays.copyOf(intervals, capacity);
+    }
+    System.arraycopy(other.intervals, from, intervals, size, count);
+    size += count;
+  }
+
+  /**
+   * Returns the index of the first interval that ends after {@code time}, or {@code size()} if
+   * there is none. The list must be sorted and merged, so that the ends are sorted as well.
+   */
+  public int indexOfFirstEndingAfter(int time) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (end(middle) <= time) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Returns the index of the first interval that starts at or after {@code time}, or {@code size()}
+   * if there is none. The list must be sorted.
+   */
+  public int indexOfFirstStartingAtOrAfter(int time) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (start(middle) < time) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Removes every interval from the list, keeping its capacity.
+   */
+  public void clear() {
+    size = 0;
+  }
+
+  /**
+   * Sorts the intervals by start in ascending order.
+   */
+  public IntervalList sort() {
+    Arrays.sort(intervals, 0, size);
+    return this;
+  }
+
+  /**
+   * Merges every group of overlapping or touching intervals into one, in place. Intervals that take
+   * no time are dropped, since nobody is busy during them. The list must be sorted by start.
+   */
+  public IntervalList merge() {
+    int merged = 0;
+    boolean open = false;
+    int start = 0;
+    int end = 0;
+    for (int i = 0; i < size; i++) {
+      if (end(i) <= start(i)) {
+        continue;
+      }
+      if (open && start(i) <= end) {
+        end = Math.max(end, end(i));
+      } else {
+        if (open) {
+          intervals[merged++] = pack(start, end);
+        }
+        start = start(i);
+        end = end(i);
+        open = true;
+      }
+    }
+    if (open) {
+      intervals[merged++] = pack(start, end);
+    }
+    size = merged;
+    return this;
+  }
+
+  /**
+   * Returns the gaps between the intervals of this list that fall within {@code windowStart}
+   * (inclusive) and {@code windowEnd} (exclusive). The list must be sorted and merged.
+   */
+  public IntervalList invert(int windowStart, int windowEnd) {
+    IntervalList gaps = new IntervalList(size + 1);
+    int cursor = windowStart;
+    for (int i = 0; i < size && cursor < windowEnd; i++) {
+      if (start(i) > cursor) {
+        gaps.add(cursor, Math.min(start(i), windowEnd));
+      }
+      cursor = Math.max(cursor, end(i));
+    }
+    if (cursor < windowEnd) {
+      gaps.add(cursor, windowEnd);
+    }
+    return gaps;
+  }
+
+  /**
+   * Returns the parts of time that are in both this list and {@code other}, keeping only those that
+   * are at least {@code minLength} long. Both lists must be sorted and merged, and so is the
+   * result.
+   */
+  public IntervalList intersect(IntervalList other, int minLength) {
+    IntervalList intersection = new IntervalList();
+
+    // Whichever interval ends first cannot overlap any later interval of the other list, so it is
+    // the one to move past.
+    int i = 0;
+    int j = 0;
+    while (i < size && j < other.size) {
+      int start = Math.max(start(i), other.start(j));
+      int end = Math.min(end(i), other.end(j));
+      if (end > start && end - start >= minLength) {
+        intersection.add(start, end);
+      }
+
+      if (end(i) <= other.end(j)) {
+        i++;
+      } else {
+        j++;
+      }
+    }
+    return intersection;
+  }
+
+  /**
+   * Removes, in place, every interval that is shorter than {@code minLength}.
+   */
+  public IntervalList removeShorterThan(int minLength) {
+    int kept = 0;
+    for (int i = 0; i < size; i++) {
+      if (end(i) - start(i) >= minLength) {
+        intervals[kept++] = intervals[i];
+      }
+    }
+    size = kept;
+    return this;
+  }
+
+  /**
+   * Returns the intervals as {@code TimeRange} objects, in the same order.
+   */
+  public ArrayList<TimeRange> toTimeRanges() {
+    ArrayList<TimeRange> ranges = new ArrayList<TimeRange>(size);
+    for (int i = 0; i < size; i++) {
+      ranges.add(TimeRange.fromStartEnd(start(i), end(i), false));
+    }
+    return ranges;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder("[");
+    for (int i = 0; i < size; i++) {
+      builder.append(i == 0 ? "" : ", ").append('[').append(start(i)).append(", ").append(end(i));
+      builder.append(')');
+    }
+    return builder.append(']').toString();
+  }
+
+  private static long pack(int start, int end) {
+    return ((long) start << 32) | (end & 0xFFFFFFFFL);
+  }
+}
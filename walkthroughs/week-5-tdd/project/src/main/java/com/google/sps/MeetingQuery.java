@@ -0,0 +1,129 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A strategy for finding the times of the day when a meeting can take place. Implementations must
+ * agree on the results for the same events and request so that they can be swapped freely. Events
+ * that take no time make nobody busy.
+ */
+public interface MeetingQuery {
+  /**
+   * Returns the time ranges, sorted by start, in which every mandatory attendee of {@code request}
+   * is free for at least {@code request.getDuration()} minutes. If some of those ranges also work
+   * for all optional attendees, only those are returned.
+   */
+  Collection<TimeRange> query(Collection<Event> events, MeetingRequest request);
+
+  /**
+   * Same as {@code query(events, request)}, but looks for free time anywhere between the start and
+   * the end of {@code window} instead of within a single day. The window and the events are in the
+   * same unit, such as minutes since the epoch, so they can span many days and events can cross
+   * midnight. Events that do not overlap the window are not indexed at all.
+   */
+  default Collection<TimeRange> query(
+      Collection<Event> events, MeetingRequest request, TimeRange window) {
+    List<Event> eventsInWindow = new ArrayList<>();
+    for (Event event : events) {
+      TimeRange when = event.getWhen();
+      if (when.start() < window.end() && when.end() > window.start()) {
+        eventsInWindow.add(event);
+      }
+    }
+    return query(new CalendarIndex(eventsInWindow), request, window);
+  }
+
+  /**
+   * Same as {@code query(events, request)}, but answers the request against a calendar that was
+   * built in advance from the events.
+   */
+  default Collection<TimeRange> query(CalendarIndex calendar, MeetingRequest request) {
+    return query(calendar, request, TimeRange.WHOLE_DAY);
+  }
+
+  /**
+   * Same as {@code query(events, request, window)}, but answers the request against a calendar
+   * that was built in advance from the events.
+   */
+  default Collection<TimeRange> query(
+      CalendarIndex calendar, MeetingRequest request, TimeRange window) {
+    return query(calendar, calendar.getAttendeeIds(request.getAttendees()),
+        calendar.getAttendeeIds(request.getOptionalAttendees()), request.getDuration(), window);
+  }
+
+  /**
+   * Same as {@code query(calendar, request)}, but with the attendees already turned into IDs by
+   * {@code calendar.getAttendeeIds}. An ID may be {@code AttendeeDictionary.UNKNOWN_ID} for people
+   * who are free all day.
+   */
+  default Collection<TimeRange> query(
+      CalendarIndex calendar, int[] attendeeIds, int[] optionalAttendeeIds, long duration) {
+    return query(calendar, attendeeIds, optionalAttendeeIds, duration, TimeRange.WHOLE_DAY);
+  }
+
+  /**
+   * Same as {@code query(calendar, request, window)}, but with the attendees already turned into
+   * IDs by {@code calendar.getAttendeeIds}. Only the busy slots that overlap {@code window} are
+   * looked at, so the cost does not grow with the number of events outside of it.
+   */
+  Collection<TimeRange> query(CalendarIndex calendar, int[] attendeeIds,
+      int[] optionalAttendeeIds, long duration, TimeRange window);
+
+  /**
+   * Answers every one of {@code requests} against the same events. The calendar of the events is
+   * only built once for the whole batch.
+   *
+   * @return the answer of each request, in the same order as {@code requests}
+   */
+  default List<Collection<TimeRange>> queryAll(
+      Collection<Event> events, List<MeetingRequest> requests) {
+    return queryAll(new CalendarIndex(events), requests);
+  }
+
+  /**
+   * Answers every one of {@code requests} against {@code calendar}, one after another.
+   *
+   * @return the answer of each request, in the same order as {@code requests}
+   */
+  default List<Collection<TimeRange>> queryAll(
+      CalendarIndex calendar, List<MeetingRequest> requests) {
+    List<Collection<TimeRange>> answers = new ArrayList<>(requests.size());
+    for (MeetingRequest request : requests) {
+      answers.add(query(calendar, request));
+    }
+    return answers;
+  }
+
+  /**
+   * Answers every one of {@code requests} against {@code calendar}, spreading the requests over
+   * the threads of {@code pool}. The calendar must not change until this method returns, and
+   * {@code query} must be safe to call from several threads at once.
+   *
+   * @return the answer of each request, in the same order as {@code requests}
+   */
+  default List<Collection<TimeRange>> queryAll(
+      CalendarIndex calendar, List<MeetingRequest> requests, ForkJoinPool pool) {
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    Collection<TimeRange>[] answers = new Collection[requests.size()];
+    pool.invoke(new BatchQueryTask(this, calendar, requests, answers, 0, answers.length));
+    return Arrays.asList(answers);
+  }
+}
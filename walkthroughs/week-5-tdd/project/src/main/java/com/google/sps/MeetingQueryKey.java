@@ -0,0 +1,75 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Arrays;
+
+/**
+ * Everything that a meeting query depends on: the calendar, the sorted IDs of the mandatory and of
+ * the optional attendees, the duration and the window. Two requests that only list their attendees
+ * in a different order get equal keys. Calendars are compared by identity.
+ */
+final class MeetingQueryKey {
+  final CalendarIndex calendar;
+  final int[] attendeeIds;
+  final int[] optionalAttendeeIds;
+  final long duration;
+  final int windowStart;
+  final int windowEnd;
+  private final int hashCode;
+
+  /**
+   * Creates the key of a query. The IDs are copied before they are sorted.
+   */
+  MeetingQueryKey(CalendarIndex calendar, int[] attendeeIds, int[] optionalAttendeeIds,
+      long duration, TimeRange window) {
+    this.calendar = calendar;
+    this.attendeeIds = sorted(attendeeIds);
+    this.optionalAttendeeIds = sorted(optionalAttendeeIds);
+    this.duration = duration;
+    this.windowStart = window.start();
+    this.windowEnd = window.end();
+
+    int hash = System.identityHashCode(calendar);
+    hash = 31 * hash + Arrays.hashCode(this.attendeeIds);
+    hash = 31 * hash + Arrays.hashCode(this.optionalAttendeeIds);
+    hash = 31 * hash + Long.hashCode(duration);
+    hash = 31 * hash + windowStart;
+    this.hashCode = 31 * hash + windowEnd;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof MeetingQueryKey)) {
+      return false;
+    }
+    MeetingQueryKey key = (MeetingQueryKey) other;
+    return calendar == key.calendar && duration == key.duration
+        && windowStart == key.windowStart && windowEnd == key.windowEnd
+        && Arrays.equals(attendeeIds, key.attendeeIds)
+        && Arrays.equals(optionalAttendeeIds, key.optionalAttendeeIds);
+  }
+
+  @Override
+  public int hashCode() {
+    return hashCode;
+  }
+
+  private static int[] sorted(int[] ids) {
+    int[] copy = Arrays.copyOf(ids, ids.length);
+    Arrays.sort(copy);
+    return copy;
+  }
+}
@@ -0,0 +1,173 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds the meeting times closest to a preferred start by walking outward from it, one free slot at
+ * a time in each direction. The free slots of the group are never built as a whole: the edges of
+ * the next slot are found by binary searches into the sorted busy slots of every attendee, so the
+ * work only depends on how far from the preferred start the search has to go.
+ */
+final class NearestSlotFinder {
+  private final IntervalList[] lists;
+  private final int windowStart;
+  private final int windowEnd;
+  private final int duration;
+
+  NearestSlotFinder(CalendarIndex calendar, int[] attendees, TimeRange window, int duration) {
+    this.lists = new IntervalList[attendees.length];
+    for (int i = 0; i < attendees.length; i++) {
+      lists[i] = calendar.getBusyIntervals(attendees[i]);
+    }
+    this.windowStart = window.start();
+    this.windowEnd = window.end();
+    this.duration = duration;
+  }
+
+  /**
+   * Returns at most {@code k} meetings, nearest to {@code preferredStart} first, one in each free
+   * slot that is long enough. Each meeting is placed as close to {@code preferredStart} as its slot
+   * allows. Ties go to the earlier meeting.
+   */
+  List<TimeRange> findNearest(int preferredStart, int k) {
+    List<TimeRange> meetings = new ArrayList<>();
+    if (k <= 0 || windowEnd - windowStart < duration) {
+      return meetings;
+    }
+
+    // The slot around the preferred start, if any, is found by the right walk. When the preferred
+    // start is free, the left part of that slot is added to it and the left walk goes on from there.
+    int preferred = Math.max(windowStart, Math.min(preferredStart, windowEnd));
+    int leftTo = preferred;
+    TimeRange right = slotAtOrAfter(preferred);
+    if (right != null && right.start() == preferred) {
+      TimeRange before = slotAtOrBefore(preferred);
+      if (before != null && before.end() == preferred) {
+        right = TimeRange.fromStartEnd(before.start(), right.end(), false);
+        leftTo = before.start();
+      }
+    }
+    if (right != null && right.duration() < duration) {
+      right = nextLongEnoughSlotAtOrAfter(right.end());
+    }
+    TimeRange left = nextLongEnoughSlotAtOrBefore(leftTo);
+
+    while (meetings.size() < k && (left != null || right != null)) {
+      int rightMeeting = right == null ? 0 : meetingStart(right, preferredStart);
+      int leftMeeting = left == null ? 0 : meetingStart(left, preferredStart);
+      boolean takeLeft = right == null || (left != null
+          && Math.abs((long) leftMeeting - preferredStart)
+              <= Math.abs((long) rightMeeting - preferredStart));
+
+      if (takeLeft) {
+        meetings.add(TimeRange.fromStartDuration(leftMeeting, duration));
+        left = nextLongEnoughSlotAtOrBefore(left.start());
+      } else {
+        meetings.add(TimeRange.fromStartDuration(rightMeeting, duration));
+        right = nextLongEnoughSlotAtOrAfter(right.end());
+      }
+    }
+    return meetings;
+  }
+
+  private TimeRange nextLongEnoughSlotAtOrAfter(int time) {
+    TimeRange slot = slotAtOrAfter(time);
+    while (slot != null && slot.duration() < duration) {
+      slot = slotAtOrAfter(slot.end());
+    }
+    return slot;
+  }
+
+  private TimeRange nextLongEnoughSlotAtOrBefore(int time) {
+    TimeRange slot = slotAtOrBefore(time);
+    while (slot != null && slot.duration() < duration) {
+      slot = slotAtOrBefore(slot.start());
+    }
+    return slot;
+  }
+
+  /**
+   * Returns the free slot that starts at the first free time at or after {@code time}, or null if
+   * there is none before the end of the window.
+   */
+  private TimeRange slotAtOrAfter(int time) {
+    int start = Math.max(time, windowStart);
+
+    // Jump past every busy slot that covers the start until nobody is busy at it.
+    boolean moved = true;
+    while (moved && start < windowEnd) {
+      moved = false;
+      for (IntervalList list : lists) {
+        int index = list.indexOfFirstEndingAfter(start);
+        if (index < list.size() && list.start(index) <= start) {
+          start = list.end(index);
+          moved = true;
+        }
+      }
+    }
+    if (start >= windowEnd) {
+      return null;
+    }
+
+    int end = windowEnd;
+    for (IntervalList list : lists) {
+      int index = list.indexOfFirstEndingAfter(start);
+      if (index < list.size()) {
+        end = Math.min(end, list.start(index));
+      }
+    }
+    return TimeRange.fromStartEnd(start, end, false);
+  }
+
+  /**
+   * Returns the free slot that ends at the last free time at or before {@code time}, or null if
+   * there is none after the start of the window.
+   */
+  private TimeRange slotAtOrBefore(int time) {
+    int end = Math.min(time, windowEnd);
+
+    // Jump back past every busy slot that covers the minute before the end.
+    boolean moved = true;
+    while (moved && end > windowStart) {
+      moved = false;
+      for (IntervalList list : lists) {
+        int index = list.indexOfFirstStartingAtOrAfter(end) - 1;
+        if (index >= 0 && list.end(index) > end - 1 && list.start(index) < end) {
+          end = list.start(index);
+          moved = true;
+        }
+      }
+    }
+    if (end <= windowStart) {
+      return null;
+    }
+
+    int start = windowStart;
+    for (IntervalList list : lists) {
+      int index = list.indexOfFirstStartingAtOrAfter(end) - 1;
+      if (index >= 0) {
+        start = Math.max(start, list.end(index));
+      }
+    }
+    return TimeRange.fromStartEnd(start, end, false);
+  }
+
+  private int meetingStart(TimeRange slot, int preferredStart) {
+    return Math.max(slot.start(), Math.min(preferredStart, slot.end() - duration));
+  }
+}
@@ -29,7 +29,9 @@ public final class TimeRange {
   public static final int START_OF_DAY = getTimeInMinutes(0, 0);
   public static final int END_OF_DAY = getTimeInMinutes(23, 59);
 
-  public static final TimeRange WHOLE_DAY = new TimeRange(0, 24 * 60);
+  public static final int MINUTES_PER_DAY = 24 * 60;
+
+  public static final TimeRange WHOLE_DAY = new TimeRange(0, MINUTES_PER_DAY);
 
   /**
    * A comparator for sorting ranges by their start time in ascending order.
@@ -0,0 +1,132 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.TimeRange;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Answers one meeting request on an executor, racing the query against a deadline. Whichever of
+ * the answer, a failure of the query, the deadline or a full executor comes first decides the
+ * response, and the request is completed exactly once.
+ */
+final class AsyncQuery {
+  /**
+   * Where the response of the request goes.
+   */
+  interface Responder {
+    void sendAnswer(Collection<TimeRange> answer) throws IOException;
+
+    void sendError(int status, String message) throws IOException;
+
+    /** Ends the request. Called exactly once, after the answer or the error was sent. */
+    void complete();
+
+    void log(String message, Throwable error);
+  }
+
+  private final Responder responder;
+  private final AtomicBoolean answered = new AtomicBoolean();
+  private volatile Future<?> task;
+
+  AsyncQuery(Responder responder) {
+    this.responder = responder;
+  }
+
+  /**
+   * Runs {@code query} on {@code executor}, or answers with a 503 right away if the executor does
+   * not take it.
+   */
+  void submit(ExecutorService executor, final Callable<Collection<TimeRange>> query) {
+    try {
+      task = executor.submit(new Runnable() {
+        @Override
+        public void run() {
+          AsyncQuery.this.run(query);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Too many meeting requests.");
+    }
+  }
+
+  /**
+   * Called when the deadline passes. Answers with a 503 unless the request was already answered.
+   */
+  void onTimeout() {
+    cancel();
+    sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "The meeting request took too long.");
+  }
+
+  /**
+   * Called when the client goes away, so there is nobody left to answer.
+   */
+  void onError() {
+    answered.set(true);
+    cancel();
+  }
+
+  private void run(Callable<Collection<TimeRange>> query) {
+    // The deadline may have passed while the query waited for a thread.
+    if (answered.get()) {
+      return;
+    }
+
+    Collection<TimeRange> answer;
+    try {
+      answer = query.call();
+    } catch (Throwable e) {
+      responder.log("Could not find the meeting times.", e);
+      sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Could not find meeting times.");
+      return;
+    }
+
+    if (answered.compareAndSet(false, true)) {
+      try {
+        responder.sendAnswer(answer);
+      } catch (IOException | RuntimeException e) {
+        responder.log("Could not send the meeting times.", e);
+      } finally {
+        responder.complete();
+      }
+    }
+  }
+
+  private void sendError(int status, String message) {
+    if (answered.compareAndSet(false, true)) {
+      try {
+        responder.sendError(status, message);
+      } catch (IOException | RuntimeException e) {
+        responder.log("Could not send an error.", e);
+      } finally {
+        responder.complete();
+      }
+    }
+  }
+
+  private void cancel() {
+    Future<?> future = task;
+    if (future != null) {
+      future.cancel(false);
+    }
+  }
+}
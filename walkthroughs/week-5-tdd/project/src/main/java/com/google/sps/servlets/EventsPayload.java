@@ -0,0 +1,150 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.gson.Gson;
+import com.google.sps.CalendarIndex;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The JSON of the events of one version of a calendar, serialized once in plain and gzip form,
+ * along with a strong {@code ETag} for each form that only depends on the JSON. The same events
+ * always give the same tags, even across server restarts.
+ */
+final class EventsPayload {
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  // The hash is cut to this many bytes, which is plenty to tell event sets apart.
+  private static final int ETAG_BYTES = 16;
+
+  final CalendarIndex calendar;
+  final long version;
+  final byte[] json;
+  final byte[] gzippedJson;
+
+  // The strong tags of the plain and of the gzip body. They differ, since the bytes differ.
+  final String etag;
+  final String gzipEtag;
+
+  /**
+   * Serializes the events of {@code calendar} as they are now.
+   */
+  EventsPayload(CalendarIndex calendar, Gson gson) {
+    // The version is read first, so that a change made while the events are read moves the
+    // calendar past it and the payload gets built again.
+    this.calendar = calendar;
+    this.version = calendar.getVersion();
+    this.json = gson.toJson(calendar.getEvents()).getBytes(StandardCharsets.UTF_8);
+    this.gzippedJson = gzip(json);
+    String hash = hash(json);
+    this.etag = '"' + hash + '"';
+    this.gzipEtag = '"' + hash + "-gzip\"";
+  }
+
+  /**
+   * Checks whether this payload still holds the events of {@code calendar}.
+   */
+  boolean isCurrent(CalendarIndex calendar) {
+    return this.calendar == calendar && version == calendar.getVersion();
+  }
+
+  /**
+   * Checks whether the value of an {@code If-None-Match} header names {@code etag}, the tag of the
+   * body that would be sent, so that the client already has it. Weak tags match too, as the header
+   * is compared weakly.
+   */
+  static boolean matches(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+
+    for (String tag : ifNoneMatch.split(",")) {
+      tag = tag.trim();
+      if (tag.startsWith("W/")) {
+        tag = tag.substring(2);
+      }
+      if (tag.equals("*") || tag.equals(etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Checks whether the value of an {@code Accept-Encoding} header allows a gzip response.
+   */
+  static boolean acceptsGzip(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+
+    for (String coding : acceptEncoding.split(",")) {
+      String[] parts = coding.split(";");
+      String name = parts[0].trim();
+      if (!name.equalsIgnoreCase("gzip") && !name.equals("*")) {
+        continue;
+      }
+
+      // A quality of zero means that the client does not want it.
+      boolean refused = false;
+      for (int i = 1; i < parts.length; i++) {
+        String parameter = parts[i].trim();
+        if (parameter.startsWith("q=")) {
+          try {
+            refused = Double.parseDouble(parameter.substring(2)) == 0;
+          } catch (NumberFormatException e) {
+            refused = true;
+          }
+        }
+      }
+      return !refused;
+    }
+    return false;
+  }
+
+  private static byte[] gzip(byte[] bytes) {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4 + 64);
+    try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+      gzip.write(bytes);
+    } catch (IOException e) {
+      // Writing to memory does not fail.
+      throw new UncheckedIOException(e);
+    }
+    return compressed.toByteArray();
+  }
+
+  private static String hash(byte[] bytes) {
+    byte[] digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform has to support SHA-256.
+      throw new IllegalStateException(e);
+    }
+
+    char[] hex = new char[ETAG_BYTES * 2];
+    for (int i = 0; i < ETAG_BYTES; i++) {
+      hex[2 * i] = HEX_DIGITS[(digest[i] >> 4) & 0xF];
+      hex[2 * i + 1] = HEX_DIGITS[digest[i] & 0xF];
+    }
+    return new String(hex);
+  }
+}
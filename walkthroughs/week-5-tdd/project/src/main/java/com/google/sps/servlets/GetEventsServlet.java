@@ -14,7 +14,8 @@
 
 package com.google.sps.servlets;
 
-import com.google.sps.Events;
+import com.google.sps.CalendarIndex;
+import com.google.sps.CalendarStore;
 import com.google.gson.Gson;
 import java.io.IOException;
 import javax.servlet.annotation.WebServlet;
@@ -22,15 +23,65 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+/**
+ * Sends the events of the shared calendar as JSON. The JSON is only built, and compressed, once per
+ * set of events, and clients that already have it are told so with a 304.
+ */
 @WebServlet("/get-events")
 public class GetEventsServlet extends HttpServlet {
+  private Gson gson;
+  private CalendarStore calendarStore;
+
+  // The payload of the last events that were sent. Rebuilt when the calendar changes.
+  private volatile EventsPayload payload;
+
+  @Override
+  public void init() {
+    gson = new Gson();
+    calendarStore = SharedCalendar.get(getServletContext());
+  }
+
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    Gson gson = new Gson();
-    String jsonResponse = gson.toJson(Events.events);
+    EventsPayload current = getPayload();
+
+    // The plain and the gzip body are different bytes, so each has its own tag, and caches have to
+    // keep them apart by the encoding the client accepts.
+    boolean gzip = EventsPayload.acceptsGzip(request.getHeader("Accept-Encoding"));
+    String etag = gzip ? current.gzipEtag : current.etag;
+    response.setHeader("ETag", etag);
+    response.setHeader("Vary", "Accept-Encoding");
+
+    // Browsers revalidate with the tag of the copy they have, so only send it if it changed.
+    if (EventsPayload.matches(request.getHeader("If-None-Match"), etag)) {
+      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return;
+    }
+
+    byte[] body = current.json;
+    if (gzip) {
+      body = current.gzippedJson;
+      response.setHeader("Content-Encoding", "gzip");
+    }
 
     // Send the JSON back as the response
     response.setContentType("application/json");
-    response.getWriter().println(jsonResponse);
+    response.setCharacterEncoding("UTF-8");
+    response.setContentLength(body.length);
+    response.getOutputStream().write(body);
+  }
+
+  /**
+   * Returns the payload of the events in the store, building it if they changed. Two requests may
+   * both build the payload of new events, which is harmless since they build the same one.
+   */
+  private EventsPayload getPayload() {
+    CalendarIndex calendar = calendarStore.getCalendar();
+    EventsPayload current = payload;
+    if (current == null || !current.isCurrent(calendar)) {
+      current = new EventsPayload(calendar, gson);
+      payload = current;
+    }
+    return current;
   }
 }
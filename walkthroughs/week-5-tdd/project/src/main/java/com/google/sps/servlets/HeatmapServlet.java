@@ -0,0 +1,80 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.BusyHeatmap;
+import com.google.sps.CalendarStore;
+import com.google.sps.TimeRange;
+import com.google.gson.Gson;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Returns how many of the given attendees are busy in each bucket of the day, for example
+ * {@code /heatmap?attendee=Ava&attendee=Noah&bucket=15}. The bucket length is in minutes and
+ * defaults to one minute.
+ */
+@WebServlet("/heatmap")
+public class HeatmapServlet extends HttpServlet {
+  private static final int DEFAULT_BUCKET_MINUTES = 1;
+
+  private Gson gson;
+  private CalendarStore calendarStore;
+
+  @Override
+  public void init() {
+    gson = new Gson();
+    calendarStore = SharedCalendar.get(getServletContext());
+  }
+
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    // Use a set so that an attendee given twice is only counted once.
+    Set<String> attendees = new HashSet<>();
+    String[] attendeeValues = request.getParameterValues("attendee");
+    if (attendeeValues != null) {
+      attendees.addAll(Arrays.asList(attendeeValues));
+    }
+
+    int bucketMinutes = DEFAULT_BUCKET_MINUTES;
+    String bucketValue = request.getParameter("bucket");
+    if (bucketValue != null) {
+      try {
+        bucketMinutes = Integer.parseInt(bucketValue);
+      } catch (NumberFormatException e) {
+        bucketMinutes = -1;
+      }
+      if (bucketMinutes <= 0 || bucketMinutes > TimeRange.MINUTES_PER_DAY) {
+        response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+            "bucket must be a number of minutes between 1 and " + TimeRange.MINUTES_PER_DAY);
+        return;
+      }
+    }
+
+    // Count the busy attendees in one pass over their events.
+    BusyHeatmap heatmap = BusyHeatmap.of(
+        calendarStore.getCalendar(), attendees, TimeRange.WHOLE_DAY, bucketMinutes);
+
+    // Send the JSON back as the response
+    response.setContentType("application/json");
+    response.getWriter().println(gson.toJson(heatmap));
+  }
+}
@@ -0,0 +1,126 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.AttendeeDictionary;
+import com.google.sps.TimeRange;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Reads meeting requests and writes their answers one JSON token at a time, so that neither the
+ * request nor the response is ever held as a whole string or as a tree of objects. The JSON is the
+ * same that {@code Gson} reads into a {@code MeetingRequest} and writes for a list of {@code
+ * TimeRange}s.
+ */
+final class QueryJson {
+  private QueryJson() {}
+
+  /**
+   * A meeting request whose attendees were turned into IDs of a calendar as they were read.
+   */
+  static final class Request {
+    final int[] attendeeIds;
+    final int[] optionalAttendeeIds;
+    final long duration;
+
+    Request(int[] attendeeIds, int[] optionalAttendeeIds, long duration) {
+      this.attendeeIds = attendeeIds;
+      this.optionalAttendeeIds = optionalAttendeeIds;
+      this.duration = duration;
+    }
+  }
+
+  /**
+   * Reads a request such as {@code {"duration": 30, "attendees": ["Ava"], "optional_attendees":
+   * []}}. Names are looked up in {@code dictionary} as soon as they are read and only their IDs are
+   * kept. Unknown fields are skipped.
+   *
+   * @throws IOException if the JSON is malformed or cannot be read
+   * @throws IllegalStateException if a field has the wrong type
+   * @throws NumberFormatException if the duration is not a number
+   */
+  static Request readRequest(JsonReader reader, AttendeeDictionary dictionary) throws IOException {
+    int[] attendeeIds = new int[0];
+    int[] optionalAttendeeIds = new int[0];
+    long duration = 0;
+
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String field = reader.nextName();
+      if (reader.peek() == JsonToken.NULL) {
+        reader.nextNull();
+      } else if (field.equals("attendees")) {
+        attendeeIds = readIds(reader, dictionary);
+      } else if (field.equals("optional_attendees")) {
+        optionalAttendeeIds = readIds(reader, dictionary);
+      } else if (field.equals("duration")) {
+        // The web page sends the duration as a string, which nextLong also accepts.
+        duration = reader.nextLong();
+      } else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+
+    return new Request(attendeeIds, optionalAttendeeIds, duration);
+  }
+
+  /**
+   * Writes {@code ranges} as an array of {@code {"start": ..., "duration": ...}} objects.
+   */
+  static void writeTimeRanges(JsonWriter writer, Collection<TimeRange> ranges) throws IOException {
+    writer.beginArray();
+    for (TimeRange range : ranges) {
+      writer.beginObject();
+      writer.name("start").value(range.start());
+      writer.name("duration").value(range.duration());
+      writer.endObject();
+    }
+    writer.endArray();
+  }
+
+  /**
+   * Reads an array of names into their sorted IDs, without duplicates, like the set that {@code
+   * MeetingRequest} keeps.
+   */
+  private static int[] readIds(JsonReader reader, AttendeeDictionary dictionary)
+      throws IOException {
+    int[] ids = new int[8];
+    int size = 0;
+
+    reader.beginArray();
+    while (reader.hasNext()) {
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size * 2);
+      }
+      ids[size++] = dictionary.getId(reader.nextString());
+    }
+    reader.endArray();
+
+    Arrays.sort(ids, 0, size);
+    int unique = 0;
+    for (int i = 0; i < size; i++) {
+      if (unique == 0 || ids[unique - 1] != ids[i]) {
+        ids[unique++] = ids[i];
+      }
+    }
+    return Arrays.copyOf(ids, unique);
+  }
+}
@@ -14,38 +14,163 @@
 
 package com.google.sps.servlets;
 
-import com.google.sps.Events;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
+import com.google.sps.CalendarIndex;
+import com.google.sps.CalendarStore;
+import com.google.sps.CoalescingMeetingQuery;
 import com.google.sps.FindMeetingQuery;
-import com.google.sps.MeetingRequest;
+import com.google.sps.MeetingQuery;
 import com.google.sps.TimeRange;
-import com.google.gson.Gson;
+import java.io.EOFException;
 import java.io.IOException;
-import java.util.Arrays;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-@WebServlet("/query")
+/**
+ * Answers meeting requests. Queries are run on a small pool of threads of their own rather than on
+ * the threads of the container, so heavy queries cannot hold up the rest of the app. When the pool
+ * has too many queries waiting, new ones are turned away with a 503, and a query that is not
+ * answered within {@code DEADLINE_MILLIS} gets a 503 too.
+ */
+@WebServlet(value = "/query", asyncSupported = true)
 public class QueryServlet extends HttpServlet {
+  private static final int QUEUE_CAPACITY = 64;
+  private static final long DEADLINE_MILLIS = 10_000;
+
+  // Created once in init() and shared by every request. Both are safe to use from several threads
+  // at once.
+  private MeetingQuery meetingQuery;
+  private CalendarStore calendarStore;
+
+  private ExecutorService executor;
+
+  @Override
+  public void init() {
+    // Teams tend to open the page together, so identical requests that come in at the same time
+    // share one query.
+    meetingQuery = new CoalescingMeetingQuery(new FindMeetingQuery());
+    calendarStore = SharedCalendar.get(getServletContext());
+
+    // Queries only use the CPU, so one thread per core is enough to keep every core busy.
+    int threads = Runtime.getRuntime().availableProcessors();
+    executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<Runnable>(QUEUE_CAPACITY), new QueryThreadFactory(),
+        new ThreadPoolExecutor.AbortPolicy());
+  }
+
+  @Override
+  public void destroy() {
+    executor.shutdownNow();
+  }
+
   @Override
   public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    Gson gson = new Gson();
+    // Read the JSON straight into the IDs of the calendar the request is answered against.
+    final CalendarIndex calendar = calendarStore.getCalendar();
+    final QueryJson.Request meetingRequest;
+    try {
+      meetingRequest =
+          QueryJson.readRequest(new JsonReader(request.getReader()), calendar.getDictionary());
+    } catch (MalformedJsonException | EOFException | IllegalStateException
+        | NumberFormatException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Malformed meeting request.");
+      return;
+    }
 
-    // Convert the JSON to an instance of MeetingRequest.
-    MeetingRequest meetingRequest = gson.fromJson(request.getReader(), MeetingRequest.class);
+    // Whichever of the query and the deadline comes first answers the request.
+    final AsyncContext async = request.startAsync();
+    async.setTimeout(DEADLINE_MILLIS);
+    final AsyncQuery query = new AsyncQuery(new AsyncQuery.Responder() {
+      @Override
+      public void sendAnswer(Collection<TimeRange> answer) throws IOException {
+        writeAnswer((HttpServletResponse) async.getResponse(), answer);
+      }
 
-    // Find the possible meeting times.
-    FindMeetingQuery findMeetingQuery = new FindMeetingQuery();
-    Collection<TimeRange> answer =
-        findMeetingQuery.query(Arrays.asList(Events.events), meetingRequest);
+      @Override
+      public void sendError(int status, String message) throws IOException {
+        ((HttpServletResponse) async.getResponse()).sendError(status, message);
+      }
 
-    // Convert the times to JSON
-    String jsonResponse = gson.toJson(answer);
+      @Override
+      public void complete() {
+        async.complete();
+      }
 
-    // Send the JSON back as the response
+      @Override
+      public void log(String message, Throwable error) {
+        QueryServlet.this.log(message, error);
+      }
+    });
+
+    // The listener goes first, since a quick query can complete the request as soon as it is
+    // submitted.
+    async.addListener(new AsyncListener() {
+      @Override
+      public void onTimeout(AsyncEvent event) {
+        query.onTimeout();
+      }
+
+      @Override
+      public void onError(AsyncEvent event) {
+        query.onError();
+      }
+
+      @Override
+      public void onComplete(AsyncEvent event) {}
+
+      @Override
+      public void onStartAsync(AsyncEvent event) {}
+    });
+
+    query.submit(executor, new Callable<Collection<TimeRange>>() {
+      @Override
+      public Collection<TimeRange> call() {
+        // Find the possible meeting times.
+        return meetingQuery.query(calendar, meetingRequest.attendeeIds,
+            meetingRequest.optionalAttendeeIds, meetingRequest.duration);
+      }
+    });
+  }
+
+  private static void writeAnswer(HttpServletResponse response, Collection<TimeRange> answer)
+      throws IOException {
+    // Write the times as JSON straight to the response.
     response.setContentType("application/json");
-    response.getWriter().println(jsonResponse);
+    response.setCharacterEncoding("UTF-8");
+    JsonWriter writer = new JsonWriter(
+        new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+    QueryJson.writeTimeRanges(writer, answer);
+    writer.flush();
+  }
+
+  /**
+   * Names the query threads, and makes them daemons so that they never keep the server up.
+   */
+  private static final class QueryThreadFactory implements ThreadFactory {
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "meeting-query-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
   }
 }
@@ -0,0 +1,41 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.CalendarStore;
+import com.google.sps.Events;
+import java.util.Arrays;
+import javax.servlet.ServletContext;
+
+/**
+ * Gives every servlet of the web app the same {@code CalendarStore}, which is created from {@code
+ * Events.events} by whichever servlet asks for it first.
+ */
+final class SharedCalendar {
+  private static final String ATTRIBUTE = CalendarStore.class.getName();
+
+  private SharedCalendar() {}
+
+  static CalendarStore get(ServletContext context) {
+    synchronized (context) {
+      CalendarStore store = (CalendarStore) context.getAttribute(ATTRIBUTE);
+      if (store == null) {
+        store = new CalendarStore(Arrays.asList(Events.events));
+        context.setAttribute(ATTRIBUTE, store);
+      }
+      return store;
+    }
+  }
+}
@@ -0,0 +1,249 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class BitsetMeetingQueryTest {
+  private static final Collection<Event> NO_EVENTS = Collections.emptySet();
+  private static final Collection<String> NO_ATTENDEES = Collections.emptySet();
+
+  // Some people that we can use in our tests.
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+  private static final String PERSON_C = "Person C";
+
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+  private static final int TIME_0830AM = TimeRange.getTimeInMinutes(8, 30);
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+  private static final int TIME_0930AM = TimeRange.getTimeInMinutes(9, 30);
+
+  private static final int DURATION_30_MINUTES = 30;
+  private static final int DURATION_1_HOUR = 60;
+
+  private BitsetMeetingQuery query;
+
+  @Before
+  public void setUp() {
+    query = new BitsetMeetingQuery();
+  }
+
+  @Test
+  public void optionsForNoAttendees() {
+    MeetingRequest request = new MeetingRequest(NO_ATTENDEES, DURATION_1_HOUR);
+
+    Collection<TimeRange> actual = query.query(NO_EVENTS, request);
+    Collection<TimeRange> expected = Arrays.asList(TimeRange.WHOLE_DAY);
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void noOptionsForTooLongOfARequest() {
+    int duration = TimeRange.WHOLE_DAY.duration() + 1;
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), duration);
+
+    Collection<TimeRange> actual = query.query(NO_EVENTS, request);
+    Collection<TimeRange> expected = Arrays.asList();
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void everyAttendeeIsConsidered() {
+    // Events  :       |--A--|     |--B--|
+    // Day     : |-----------------------------|
+    // Options : |--1--|     |--2--|     |--3--|
+
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_B)));
+
+    MeetingRequest request =
+        new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_30_MINUTES);
+
+    Collection<TimeRange> actual = query.query(events, request);
+    Collection<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false),
+            TimeRange.fromStartEnd(TIME_0830AM, TIME_0900AM, false),
+            TimeRange.fromStartEnd(TIME_0930AM, TimeRange.END_OF_DAY, true));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void optionalAttendeeIgnoredWhenNoSlotFitsEveryone() {
+    // Optional: |-------------C---------------|
+    // Events  :       |--A--|     |--B--|
+    // Options : |--1--|     |--2--|     |--3--|
+
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_B)),
+        new Event("Event 3", TimeRange.WHOLE_DAY, Arrays.asList(PERSON_C)));
+
+    MeetingRequest request =
+        new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_30_MINUTES);
+    request.addOptionalAttendee(PERSON_C);
+
+    Collection<TimeRange> actual = query.query(events, request);
+    Collection<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false),
+            TimeRange.fromStartEnd(TIME_0830AM, TIME_0900AM, false),
+            TimeRange.fromStartEnd(TIME_0930AM, TimeRange.END_OF_DAY, true));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void zeroLengthEventBlocksNothing() {
+    // Events  :       |A (no time)
+    // Options : |-----------1-----------|
+
+    Collection<Event> events = Arrays.asList(new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0900AM, 0), Arrays.asList(PERSON_A)));
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+
+    Collection<TimeRange> expected = Arrays.asList(TimeRange.WHOLE_DAY);
+    Assert.assertEquals(expected, query.query(events, request));
+    Assert.assertEquals(expected, new FindMeetingQuery().query(events, request));
+    Assert.assertEquals(expected, new FindMeetingQuery().query(new CalendarIndex(events), request));
+  }
+
+  @Test
+  public void matchesFindMeetingQueryOnRandomCalendars() {
+    Random random = new Random(42);
+    List<String> people = Arrays.asList("P0", "P1", "P2", "P3", "P4", "P5", "P6", "P7");
+    FindMeetingQuery reference = new FindMeetingQuery();
+
+    for (int round = 0; round < 200; round++) {
+      List<Event> events = new ArrayList<>();
+      int eventCount = random.nextInt(12);
+      for (int i = 0; i < eventCount; i++) {
+        // Keep events away from the last minute of the day, which the reference implementation
+        // treats as an inclusive bound.
+        int start = random.nextInt(TimeRange.END_OF_DAY - 60);
+        // Some events take no time, which makes nobody busy.
+        int duration = random.nextInt(6) == 0
+            ? 0 : 5 + random.nextInt(Math.min(120, TimeRange.END_OF_DAY - 1 - start) - 4);
+        List<String> attendees = new ArrayList<>();
+        for (String person : people) {
+          if (random.nextInt(4) == 0) {
+            attendees.add(person);
+          }
+        }
+        events.add(new Event("Event " + i, TimeRange.fromStartDuration(start, duration), attendees));
+      }
+
+      List<String> mandatory = new ArrayList<>();
+      for (String person : people) {
+        if (random.nextInt(3) == 0) {
+          mandatory.add(person);
+        }
+      }
+      MeetingRequest request = new MeetingRequest(mandatory, 15 + random.nextInt(90));
+      for (String person : people) {
+        if (random.nextInt(4) == 0) {
+          request.addOptionalAttendee(person);
+        }
+      }
+
+      List<TimeRange> expected = new ArrayList<>(reference.query(events, request));
+      Assert.assertEquals(expected, new ArrayList<>(query.query(events, request)));
+      Assert.assertEquals(
+          expected, new ArrayList<>(query.query(new CalendarIndex(events), request)));
+    }
+  }
+
+  @Test
+  public void matchesFindMeetingQueryOverSeveralDays() {
+    Random random = new Random(7);
+    List<String> people = Arrays.asList("P0", "P1", "P2", "P3", "P4", "P5", "P6", "P7");
+    FindMeetingQuery reference = new FindMeetingQuery();
+    int horizon = 28 * TimeRange.MINUTES_PER_DAY;
+
+    for (int round = 0; round < 100; round++) {
+      // Events may start before the window, end after it, and cross midnight.
+      List<Event> events = new ArrayList<>();
+      for (int i = 0; i < 60; i++) {
+        int start = random.nextInt(horizon + TimeRange.MINUTES_PER_DAY) - 600;
+        int duration = random.nextInt(6) == 0 ? 0 : 5 + random.nextInt(12 * 60);
+        List<String> attendees = new ArrayList<>();
+        for (String person : people) {
+          if (random.nextInt(4) == 0) {
+            attendees.add(person);
+          }
+        }
+        events.add(new Event("Event " + i, TimeRange.fromStartDuration(start, duration), attendees));
+      }
+
+      MeetingRequest request =
+          new MeetingRequest(Arrays.asList("P0", "P1"), 15 + random.nextInt(240));
+      request.addOptionalAttendee("P2");
+      TimeRange window = TimeRange.fromStartDuration(random.nextInt(TimeRange.MINUTES_PER_DAY),
+          random.nextInt(horizon));
+
+      CalendarIndex calendar = new CalendarIndex(events);
+      Assert.assertEquals(new ArrayList<>(reference.query(calendar, request, window)),
+          new ArrayList<>(query.query(calendar, request, window)));
+    }
+  }
+
+  @Test
+  public void matchesFindMeetingQueryWithCoarseGranularity() {
+    Random random = new Random(17);
+    List<String> people = Arrays.asList("P0", "P1", "P2", "P3", "P4", "P5");
+    FindMeetingQuery reference = new FindMeetingQuery();
+
+    for (int round = 0; round < 200; round++) {
+      List<Event> events = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        int start = random.nextInt(3 * TimeRange.MINUTES_PER_DAY);
+        events.add(new Event("Event " + i,
+            TimeRange.fromStartDuration(start, random.nextInt(6) == 0 ? 0 : 1 + random.nextInt(180)),
+            Arrays.asList(people.get(random.nextInt(people.size())))));
+      }
+
+      MeetingRequest request =
+          new MeetingRequest(Arrays.asList("P0", "P1"), 10 + random.nextInt(120));
+      request.addOptionalAttendee("P2");
+
+      // The window does not start or end on a slot boundary.
+      TimeRange window = TimeRange.fromStartDuration(
+          random.nextInt(TimeRange.MINUTES_PER_DAY), random.nextInt(2 * TimeRange.MINUTES_PER_DAY));
+      int granularity = random.nextBoolean() ? 5 : 15;
+      CalendarIndex calendar = new CalendarIndex(events, granularity);
+
+      Assert.assertEquals(new ArrayList<>(reference.query(calendar, request, window)),
+          new ArrayList<>(query.query(calendar, request, window)));
+    }
+  }
+}
@@ -0,0 +1,114 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class BusyHeatmapTest {
+  // Some people that we can use in our tests.
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+  private static final String PERSON_C = "Person C";
+
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+  private static final int TIME_0805AM = TimeRange.getTimeInMinutes(8, 5);
+  private static final int TIME_0810AM = TimeRange.getTimeInMinutes(8, 10);
+  private static final int TIME_0830AM = TimeRange.getTimeInMinutes(8, 30);
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+
+  @Test
+  public void countsBusyAttendeesPerMinute() {
+    // Events : |----A----|
+    //               |----B----|
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TIME_0800AM, TIME_0830AM, false),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartEnd(TIME_0810AM, TIME_0900AM, false),
+            Arrays.asList(PERSON_B, PERSON_C)));
+
+    BusyHeatmap heatmap = BusyHeatmap.of(new CalendarIndex(events),
+        Arrays.asList(PERSON_A, PERSON_B), TimeRange.WHOLE_DAY, 1);
+
+    Assert.assertEquals(TimeRange.MINUTES_PER_DAY, heatmap.size());
+    Assert.assertEquals(0, heatmap.getCount(TIME_0800AM - 1));
+    Assert.assertEquals(1, heatmap.getCount(TIME_0800AM));
+    Assert.assertEquals(2, heatmap.getCount(TIME_0810AM));
+    Assert.assertEquals(1, heatmap.getCount(TIME_0830AM));
+    Assert.assertEquals(0, heatmap.getCount(TIME_0900AM));
+  }
+
+  @Test
+  public void attendeeCountedOncePerBucket() {
+    // Two short events of A fall in the same 15 minute bucket.
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TIME_0800AM, TIME_0805AM, false),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartEnd(TIME_0810AM, TIME_0830AM, false),
+            Arrays.asList(PERSON_A)));
+
+    BusyHeatmap heatmap = BusyHeatmap.of(
+        new CalendarIndex(events), Arrays.asList(PERSON_A), TimeRange.WHOLE_DAY, 15);
+
+    Assert.assertEquals(TimeRange.MINUTES_PER_DAY / 15, heatmap.size());
+    Assert.assertEquals(1, heatmap.getCount(TIME_0800AM / 15));
+    Assert.assertEquals(1, heatmap.getCount(TIME_0800AM / 15 + 1));
+    Assert.assertEquals(0, heatmap.getCount(TIME_0830AM / 15));
+  }
+
+  @Test
+  public void matchesBusySlotsOnRandomCalendars() {
+    Random random = new Random(5);
+    List<String> people = Arrays.asList("P0", "P1", "P2", "P3", "P4", "P5");
+
+    for (int round = 0; round < 50; round++) {
+      List<Event> events = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        int start = random.nextInt(TimeRange.MINUTES_PER_DAY);
+        int end = start + random.nextInt(TimeRange.MINUTES_PER_DAY - start + 1);
+        events.add(new Event("Event " + i, TimeRange.fromStartEnd(start, end, false),
+            Arrays.asList(people.get(random.nextInt(people.size())))));
+      }
+      CalendarIndex calendar = new CalendarIndex(events);
+      int bucketMinutes = 1 + random.nextInt(60);
+
+      BusyHeatmap heatmap = BusyHeatmap.of(calendar, people, TimeRange.WHOLE_DAY, bucketMinutes);
+
+      for (int bucket = 0; bucket < heatmap.size(); bucket++) {
+        TimeRange range = TimeRange.fromStartEnd(bucket * bucketMinutes,
+            Math.min((bucket + 1) * bucketMinutes, TimeRange.MINUTES_PER_DAY), false);
+        int expected = 0;
+        for (String person : people) {
+          for (TimeRange busy : calendar.getBusySlots(person)) {
+            if (busy.duration() > 0 && busy.overlaps(range)) {
+              expected++;
+              break;
+            }
+          }
+        }
+        Assert.assertEquals(expected, heatmap.getCount(bucket));
+      }
+    }
+  }
+}
@@ -0,0 +1,82 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class BusySlotMergerTest {
+  @Test
+  public void mergesInStartOrder() {
+    CalendarIndex calendar = new CalendarIndex(Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(60, 90, false), Arrays.asList("A")),
+        new Event("Event 2", TimeRange.fromStartEnd(10, 20, false), Arrays.asList("B")),
+        new Event("Event 3", TimeRange.fromStartEnd(30, 70, false), Arrays.asList("C")),
+        new Event("Event 4", TimeRange.fromStartEnd(100, 120, false), Arrays.asList("B"))));
+    int[] ids = calendar.getAttendeeIds(Arrays.asList("A", "B", "C", "Nobody"));
+
+    Assert.assertEquals("[[10, 20), [30, 70), [60, 90), [100, 120)]",
+        drain(new BusySlotMerger(calendar, ids, 0)).toString());
+    // Slots that end at or before the start are skipped.
+    Assert.assertEquals("[[30, 70), [60, 90), [100, 120)]",
+        drain(new BusySlotMerger(calendar, ids, 20)).toString());
+  }
+
+  @Test
+  public void matchesSortedConcatenation() {
+    Random random = new Random(7);
+    List<Event> events = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      int start = random.nextInt(TimeRange.END_OF_DAY);
+      Collection<String> attendees = Arrays.asList("Person " + random.nextInt(40));
+      events.add(new Event("Event " + i,
+          TimeRange.fromStartDuration(start, 1 + random.nextInt(90)), attendees));
+    }
+    CalendarIndex calendar = new CalendarIndex(events);
+    int[] ids = new int[40];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = calendar.getDictionary().getId("Person " + i);
+    }
+
+    IntervalList expected = new IntervalList();
+    for (int id : ids) {
+      expected.addAll(calendar.getBusyIntervals(id));
+    }
+    expected.sort();
+
+    IntervalList actual = drain(new BusySlotMerger(calendar, ids, 0));
+    Assert.assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < actual.size(); i++) {
+      Assert.assertEquals(expected.start(i), actual.start(i));
+    }
+  }
+
+  private static IntervalList drain(BusySlotMerger merger) {
+    IntervalList slots = new IntervalList();
+    while (merger.next()) {
+      slots.add(merger.start(), merger.end());
+    }
+    return slots;
+  }
+}
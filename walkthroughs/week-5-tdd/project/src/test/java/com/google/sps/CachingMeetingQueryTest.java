@@ -0,0 +1,165 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class CachingMeetingQueryTest {
+  // Some people that we can use in our tests.
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+  private static final String PERSON_C = "Person C";
+
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+  private static final int TIME_1000AM = TimeRange.getTimeInMinutes(10, 0);
+
+  private static final int DURATION_30_MINUTES = 30;
+
+  private CalendarIndex calendar;
+  private CachingMeetingQuery query;
+
+  @Before
+  public void setUp() {
+    calendar = new CalendarIndex(Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_B))));
+    query = new CachingMeetingQuery(new FindMeetingQuery(), 2);
+  }
+
+  @Test
+  public void repeatedRequestIsAnsweredFromCache() {
+    Collection<TimeRange> first =
+        query.query(calendar, new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), 30));
+    // Same people in a different order.
+    Collection<TimeRange> second =
+        query.query(calendar, new MeetingRequest(Arrays.asList(PERSON_B, PERSON_A), 30));
+
+    Assert.assertSame(first, second);
+    Assert.assertEquals(1, query.getHitCount());
+    Assert.assertEquals(1, query.getMissCount());
+  }
+
+  @Test
+  public void changeToAttendeeInvalidatesAnswer() {
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    query.query(calendar, request);
+
+    calendar.addEvent(new Event("Event 3",
+        TimeRange.fromStartDuration(TIME_1000AM, DURATION_30_MINUTES), Arrays.asList(PERSON_A)));
+    Collection<TimeRange> actual = query.query(calendar, request);
+
+    Assert.assertEquals(new FindMeetingQuery().query(calendar, request), actual);
+    Assert.assertEquals(0, query.getHitCount());
+    Assert.assertEquals(2, query.getMissCount());
+  }
+
+  @Test
+  public void changeToOtherPeopleKeepsAnswer() {
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    query.query(calendar, request);
+
+    calendar.addEvent(new Event("Event 3",
+        TimeRange.fromStartDuration(TIME_1000AM, DURATION_30_MINUTES), Arrays.asList(PERSON_C)));
+    query.query(calendar, request);
+
+    Assert.assertEquals(1, query.getHitCount());
+  }
+
+  @Test
+  public void leastRecentlyUsedAnswerIsEvicted() {
+    MeetingRequest requestA = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    MeetingRequest requestB = new MeetingRequest(Arrays.asList(PERSON_B), DURATION_30_MINUTES);
+    MeetingRequest requestC = new MeetingRequest(Arrays.asList(PERSON_C), DURATION_30_MINUTES);
+
+    query.query(calendar, requestA);
+    query.query(calendar, requestB);
+    query.query(calendar, requestA);
+    query.query(calendar, requestC);
+
+    Assert.assertEquals(2, query.size());
+    Assert.assertEquals(1, query.getEvictionCount());
+
+    // B was used least recently, so it is the one that was dropped.
+    query.query(calendar, requestA);
+    Assert.assertEquals(2, query.getHitCount());
+    query.query(calendar, requestB);
+    Assert.assertEquals(2, query.getHitCount());
+  }
+
+  @Test
+  public void answerCachedDuringAddEventIsDropped() throws InterruptedException {
+    // Queries run while an event is added may miss it, but none of their answers may be served
+    // once the add has returned. Many attendees make the add take longer.
+    List<String> attendees = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      attendees.add("Person " + i);
+    }
+    final Event event =
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, 30), attendees);
+    final MeetingRequest request =
+        new MeetingRequest(Arrays.asList("Person 0"), DURATION_30_MINUTES);
+    for (int trial = 0; trial < 2000; trial++) {
+      final CalendarIndex calendar = new CalendarIndex();
+      final CachingMeetingQuery query = new CachingMeetingQuery(new FindMeetingQuery(), 2);
+      final CyclicBarrier start = new CyclicBarrier(2);
+      final AtomicBoolean added = new AtomicBoolean();
+      final AtomicReference<Throwable> failure = new AtomicReference<>();
+      Thread reader = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+            while (!added.get()) {
+              query.query(calendar, request);
+            }
+          } catch (Throwable e) {
+            failure.set(e);
+          }
+        }
+      });
+      reader.start();
+
+      try {
+        start.await();
+      } catch (BrokenBarrierException e) {
+        throw new AssertionError(e);
+      }
+      calendar.addEvent(event);
+      added.set(true);
+      reader.join();
+
+      Assert.assertNull(failure.get());
+      Assert.assertEquals(
+          new FindMeetingQuery().query(calendar, request), query.query(calendar, request));
+    }
+  }
+}
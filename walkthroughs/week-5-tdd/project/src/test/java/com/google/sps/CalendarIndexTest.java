@@ -0,0 +1,348 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class CalendarIndexTest {
+  // Some people that we can use in our tests.
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+  private static final String PERSON_C = "Person C";
+
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+  private static final int TIME_0830AM = TimeRange.getTimeInMinutes(8, 30);
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+  private static final int TIME_0930AM = TimeRange.getTimeInMinutes(9, 30);
+  private static final int TIME_1000AM = TimeRange.getTimeInMinutes(10, 0);
+
+  @Test
+  public void busySlotsAreSortedAndMerged() {
+    // Events  : |--A--|
+    //              |----A----|     |--A--|
+    // Busy    : |------------|     |-----|
+
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TIME_0930AM, TIME_1000AM, false),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartEnd(TIME_0800AM, TIME_0830AM, false),
+            Arrays.asList(PERSON_A, PERSON_B)),
+        new Event("Event 3", TimeRange.fromStartEnd(TIME_0800AM, TIME_0900AM, false),
+            Arrays.asList(PERSON_A)));
+
+    CalendarIndex calendar = new CalendarIndex(events);
+
+    List<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(TIME_0800AM, TIME_0900AM, false),
+            TimeRange.fromStartEnd(TIME_0930AM, TIME_1000AM, false));
+    Assert.assertEquals(expected, calendar.getBusySlots(PERSON_A));
+    Assert.assertEquals(
+        Arrays.asList(TimeRange.fromStartEnd(TIME_0800AM, TIME_0830AM, false)),
+        calendar.getBusySlots(PERSON_B));
+  }
+
+  @Test
+  public void touchingEventsAreMerged() {
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TIME_0800AM, TIME_0830AM, false),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartEnd(TIME_0830AM, TIME_0900AM, false),
+            Arrays.asList(PERSON_A)));
+
+    CalendarIndex calendar = new CalendarIndex(events);
+
+    Assert.assertEquals(
+        Arrays.asList(TimeRange.fromStartEnd(TIME_0800AM, TIME_0900AM, false)),
+        calendar.getBusySlots(PERSON_A));
+  }
+
+  @Test
+  public void unknownAttendeeIsFree() {
+    Collection<Event> events = Arrays.asList(new Event("Event 1",
+        TimeRange.fromStartEnd(TIME_0800AM, TIME_0830AM, false), Arrays.asList(PERSON_A)));
+
+    CalendarIndex calendar = new CalendarIndex(events);
+
+    Assert.assertFalse(calendar.hasAttendee(PERSON_C));
+    Assert.assertEquals(Collections.emptyList(), calendar.getBusySlots(PERSON_C));
+  }
+
+  @Test
+  public void indexCanAnswerManyRequests() {
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TIME_0800AM, TIME_0830AM, false),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartEnd(TIME_0900AM, TIME_0930AM, false),
+            Arrays.asList(PERSON_B)));
+    CalendarIndex calendar = new CalendarIndex(events);
+    FindMeetingQuery query = new FindMeetingQuery();
+
+    for (List<String> attendees : Arrays.asList(Arrays.asList(PERSON_A),
+             Arrays.asList(PERSON_B), Arrays.asList(PERSON_A, PERSON_B, PERSON_C))) {
+      MeetingRequest request = new MeetingRequest(attendees, 30);
+      Assert.assertEquals(query.query(events, request), query.query(calendar, request));
+    }
+  }
+
+  @Test
+  public void addedEventIsSeenByLaterQueries() {
+    CalendarIndex calendar = new CalendarIndex();
+    FindMeetingQuery query = new FindMeetingQuery();
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), 30);
+
+    Assert.assertEquals(Arrays.asList(TimeRange.WHOLE_DAY), query.query(calendar, request));
+
+    calendar.addEvent(new Event("Event 1", TimeRange.fromStartEnd(TIME_0900AM, TIME_0930AM, false),
+        Arrays.asList(PERSON_A)));
+    calendar.addEvent(new Event("Event 2", TimeRange.fromStartEnd(TIME_0800AM, TIME_0900AM, false),
+        Arrays.asList(PERSON_A)));
+
+    Assert.assertEquals(
+        Arrays.asList(TimeRange.fromStartEnd(TIME_0800AM, TIME_0930AM, false)),
+        calendar.getBusySlots(PERSON_A));
+    Assert.assertEquals(
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false),
+            TimeRange.fromStartEnd(TIME_0930AM, TimeRange.END_OF_DAY, true)),
+        query.query(calendar, request));
+  }
+
+  @Test
+  public void removedEventKeepsOverlappingOnes() {
+    // Events  : |----A----|
+    //              |--A--|
+    Event outer = new Event("Event 1", TimeRange.fromStartEnd(TIME_0800AM, TIME_1000AM, false),
+        Arrays.asList(PERSON_A, PERSON_B));
+    Event inner = new Event("Event 2", TimeRange.fromStartEnd(TIME_0830AM, TIME_0900AM, false),
+        Arrays.asList(PERSON_A));
+    CalendarIndex calendar = new CalendarIndex(Arrays.asList(outer, inner));
+
+    Assert.assertTrue(calendar.removeEvent(outer));
+
+    Assert.assertEquals(
+        Arrays.asList(TimeRange.fromStartEnd(TIME_0830AM, TIME_0900AM, false)),
+        calendar.getBusySlots(PERSON_A));
+    Assert.assertFalse(calendar.hasAttendee(PERSON_B));
+    Assert.assertFalse(calendar.removeEvent(outer));
+  }
+
+  @Test
+  public void eventsOverlappingWindow() {
+    // Events  : |--A--|  |--B--|
+    //                  |----C----|
+    // Window  :           |---|
+    Event first = new Event("Event 1", TimeRange.fromStartEnd(TIME_0800AM, TIME_0830AM, false),
+        Arrays.asList(PERSON_A));
+    Event second = new Event("Event 2", TimeRange.fromStartEnd(TIME_0900AM, TIME_0930AM, false),
+        Arrays.asList(PERSON_B));
+    Event third = new Event("Event 3", TimeRange.fromStartEnd(TIME_0830AM, TIME_1000AM, false),
+        Arrays.asList(PERSON_C));
+    CalendarIndex calendar = new CalendarIndex(Arrays.asList(first, second, third));
+
+    TimeRange window = TimeRange.fromStartEnd(TIME_0830AM, TIME_0900AM, false);
+    Assert.assertEquals(Arrays.asList(third), calendar.getEvents(window));
+
+    calendar.removeEvent(third);
+    calendar.addEvent(third);
+    Assert.assertEquals(
+        Arrays.asList(third, second), calendar.getEvents(TimeRange.WHOLE_DAY).subList(1, 3));
+  }
+
+  @Test
+  public void busySlotsAreWidenedToGranularity() {
+    // Events  :   |-A-|     |--A--|
+    // Busy    : |-------|   |-----|   (15 minute slots)
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TIME_0800AM + 5, TIME_0830AM - 5, false),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartEnd(TIME_0900AM, TIME_0930AM, false),
+            Arrays.asList(PERSON_A)));
+
+    CalendarIndex calendar = new CalendarIndex(events, 15);
+
+    Assert.assertEquals(15, calendar.getGranularity());
+    Assert.assertEquals(
+        Arrays.asList(TimeRange.fromStartEnd(TIME_0800AM, TIME_0830AM, false),
+            TimeRange.fromStartEnd(TIME_0900AM, TIME_0930AM, false)),
+        calendar.getBusySlots(PERSON_A));
+
+    Assert.assertTrue(calendar.removeEvent(events.iterator().next()));
+    Assert.assertEquals(
+        Arrays.asList(TimeRange.fromStartEnd(TIME_0900AM, TIME_0930AM, false)),
+        calendar.getBusySlots(PERSON_A));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void granularityMustDivideDay() {
+    new CalendarIndex(Collections.<Event>emptyList(), 7);
+  }
+
+  @Test
+  public void busySlotsWithinWindowMatchEachAttendee() {
+    // Short windows hold fewer events than there are attendees and are read from the event tree,
+    // long ones from the busy slots of each attendee. Both must give the same slots.
+    Random random = new Random(7);
+    for (int granularity : new int[] {1, 15}) {
+      for (int trial = 0; trial < 200; trial++) {
+        List<Event> events = new ArrayList<>();
+        for (int i = random.nextInt(30); i > 0; i--) {
+          int start = random.nextInt(TimeRange.END_OF_DAY);
+          int duration = Math.min(random.nextInt(120), TimeRange.END_OF_DAY + 1 - start);
+          events.add(new Event("Event " + i, TimeRange.fromStartDuration(start, duration),
+              Arrays.asList("Person " + random.nextInt(8), "Person " + random.nextInt(8))));
+        }
+        CalendarIndex calendar = new CalendarIndex(events, granularity);
+
+        // Person 8 is never busy, and Person 0 is asked for twice.
+        int[] ids = calendar.getAttendeeIds(
+            Arrays.asList("Person 0", "Person 0", "Person 3", "Person 5", "Person 8"));
+        int start = random.nextInt(TimeRange.END_OF_DAY);
+        int duration = random.nextInt(TimeRange.END_OF_DAY + 1 - start) / (1 + random.nextInt(8));
+        TimeRange window = TimeRange.fromStartDuration(start, duration);
+
+        IntervalList[] lists = calendar.getBusyIntervals(ids, window);
+        Assert.assertEquals(ids.length, lists.length);
+        for (int i = 0; i < ids.length; i++) {
+          Assert.assertEquals(cutToWindow(calendar.getBusyIntervals(ids[i]), window),
+              cutToWindow(lists[i], window));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void concurrentWritersAndReaders() throws InterruptedException {
+    // Every writer adds a day of half-hour events for a person of its own, while a reader keeps
+    // looking at everyone. The reader must only ever see sorted, merged busy slots.
+    final CalendarIndex calendar = new CalendarIndex();
+    final int writerCount = 4;
+    final int eventsPerWriter = 48;
+    Thread[] writers = new Thread[writerCount];
+    for (int w = 0; w < writerCount; w++) {
+      final String person = "Person " + w;
+      writers[w] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          for (int i = 0; i < eventsPerWriter; i++) {
+            calendar.addEvent(new Event("Event " + i,
+                TimeRange.fromStartDuration(i * 30, 15), Arrays.asList(person)));
+          }
+        }
+      });
+      writers[w].start();
+    }
+
+    final AtomicBoolean writersDone = new AtomicBoolean();
+    final boolean[] sawBrokenSlots = new boolean[1];
+    Thread reader = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        while (!writersDone.get()) {
+          for (int w = 0; w < writerCount; w++) {
+            IntervalList slots = calendar.getBusyIntervals("Person " + w);
+            for (int i = 1; i < slots.size(); i++) {
+              if (slots.start(i) <= slots.end(i - 1)) {
+                sawBrokenSlots[0] = true;
+              }
+            }
+          }
+        }
+      }
+    });
+    reader.start();
+
+    for (Thread writer : writers) {
+      writer.join();
+    }
+    writersDone.set(true);
+    reader.join();
+
+    Assert.assertFalse(sawBrokenSlots[0]);
+    Assert.assertEquals(writerCount * eventsPerWriter, calendar.getEvents().size());
+    for (int w = 0; w < writerCount; w++) {
+      Assert.assertEquals(eventsPerWriter, calendar.getBusySlots("Person " + w).size());
+    }
+  }
+
+  @Test
+  public void concurrentAddAndRemoveOfSameEvent() throws InterruptedException {
+    // Whichever way the two calls interleave, the event and its busy slots must end up either both
+    // in the index or both out of it. Many attendees make the calls overlap for longer.
+    List<String> attendees = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      attendees.add("Person " + i);
+    }
+    final Event event =
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, 30), attendees);
+    for (int trial = 0; trial < 2000; trial++) {
+      final CalendarIndex calendar = new CalendarIndex();
+      final CyclicBarrier start = new CyclicBarrier(2);
+      final AtomicReference<Throwable> failure = new AtomicReference<>();
+      Thread adder = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+            calendar.addEvent(event);
+          } catch (Throwable e) {
+            failure.set(e);
+          }
+        }
+      });
+      adder.start();
+
+      try {
+        start.await();
+      } catch (BrokenBarrierException e) {
+        throw new AssertionError(e);
+      }
+      boolean removed = calendar.removeEvent(event);
+      adder.join();
+
+      Assert.assertNull(failure.get());
+      boolean indexed = !calendar.getEvents().isEmpty();
+      Assert.assertEquals(!removed, indexed);
+      for (String attendee : attendees) {
+        Assert.assertEquals(indexed, calendar.hasAttendee(attendee));
+      }
+    }
+  }
+
+  private static List<TimeRange> cutToWindow(IntervalList busySlots, TimeRange window) {
+    List<TimeRange> cut = new ArrayList<>();
+    for (int i = 0; i < busySlots.size(); i++) {
+      int start = Math.max(busySlots.start(i), window.start());
+      int end = Math.min(busySlots.end(i), window.end());
+      if (start < end) {
+        cut.add(TimeRange.fromStartEnd(start, end, false));
+      }
+    }
+    return cut;
+  }
+}
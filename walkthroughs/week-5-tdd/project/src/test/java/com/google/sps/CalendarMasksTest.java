@@ -0,0 +1,110 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class CalendarMasksTest {
+  private static final int PEOPLE = 30;
+  private static final int DAYS = 3;
+
+  // Some day long after the epoch, so that the masks do not start at minute 0.
+  private static final int HORIZON_START = 20000 * TimeRange.MINUTES_PER_DAY;
+  private static final TimeRange HORIZON =
+      TimeRange.fromStartDuration(HORIZON_START, DAYS * TimeRange.MINUTES_PER_DAY);
+
+  @Test
+  public void matchesFindMeetingQuery() {
+    for (int granularity : new int[] {1, 15}) {
+      Random random = new Random(granularity);
+      CalendarIndex calendar = new CalendarIndex(randomEvents(random), granularity);
+      CalendarMasks masks = CalendarMasks.of(calendar, HORIZON);
+      MeetingQuery query = new BitsetMeetingQuery(masks);
+
+      for (int i = 0; i < 200; i++) {
+        // Windows start anywhere in the horizon, so most of them do not line up with mask words.
+        int start = HORIZON.start() + random.nextInt(HORIZON.duration());
+        TimeRange window = TimeRange.fromStartEnd(
+            start, start + random.nextInt(HORIZON.end() - start + 1), false);
+        Assert.assertTrue(masks.covers(calendar, window));
+
+        MeetingRequest request = randomRequest(random);
+        Assert.assertEquals(new FindMeetingQuery().query(calendar, request, window),
+            query.query(calendar, request, window));
+      }
+    }
+  }
+
+  @Test
+  public void changedCalendarIsNotCovered() {
+    Random random = new Random(7);
+    CalendarIndex calendar = new CalendarIndex(randomEvents(random));
+    CalendarMasks masks = CalendarMasks.of(calendar, HORIZON);
+    MeetingQuery query = new BitsetMeetingQuery(masks);
+
+    Event event = new Event("New event", TimeRange.fromStartDuration(HORIZON_START + 60, 60),
+        Arrays.asList("Person 0"));
+    calendar.addEvent(event);
+
+    Assert.assertFalse(masks.covers(calendar, HORIZON));
+    MeetingRequest request = new MeetingRequest(Arrays.asList("Person 0"), 30);
+    Assert.assertEquals(new FindMeetingQuery().query(calendar, request, HORIZON),
+        query.query(calendar, request, HORIZON));
+  }
+
+  @Test
+  public void windowOutsideHorizonIsNotCovered() {
+    CalendarIndex calendar = new CalendarIndex(randomEvents(new Random(3)));
+    CalendarMasks masks = CalendarMasks.of(calendar, HORIZON);
+
+    Assert.assertEquals(PEOPLE, masks.getAttendeeCount());
+    Assert.assertFalse(masks.covers(calendar,
+        TimeRange.fromStartDuration(HORIZON.end() - 60, 120)));
+    Assert.assertFalse(masks.covers(new CalendarIndex(), HORIZON));
+  }
+
+  private static List<Event> randomEvents(Random random) {
+    List<Event> events = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      // Some events stick out of the horizon on either side.
+      int start = HORIZON.start() - 120 + random.nextInt(HORIZON.duration() + 120);
+      int duration = random.nextInt(6) == 0 ? 0 : 1 + random.nextInt(120);
+      events.add(new Event("Event " + i, TimeRange.fromStartDuration(start, duration),
+          Arrays.asList("Person " + (i % PEOPLE), "Person " + random.nextInt(PEOPLE))));
+    }
+    return events;
+  }
+
+  private static MeetingRequest randomRequest(Random random) {
+    List<String> attendees = new ArrayList<>();
+    for (int i = random.nextInt(4); i > 0; i--) {
+      attendees.add("Person " + random.nextInt(PEOPLE + 5));
+    }
+    MeetingRequest request = new MeetingRequest(attendees, 1 + random.nextInt(90));
+    for (int i = random.nextInt(3); i > 0; i--) {
+      request.addOptionalAttendee("Person " + random.nextInt(PEOPLE + 5));
+    }
+    return request;
+  }
+}
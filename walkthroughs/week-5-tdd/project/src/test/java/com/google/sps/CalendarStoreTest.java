@@ -0,0 +1,62 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class CalendarStoreTest {
+  private static final String PERSON_A = "Person A";
+
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+
+  @Test
+  public void replacedEventsAreSeenByNewReadersOnly() {
+    Event event = new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, 30),
+        Arrays.asList(PERSON_A));
+    CalendarStore store = new CalendarStore(Collections.<Event>emptyList());
+    CalendarIndex oldCalendar = store.getCalendar();
+
+    store.replaceEvents(Arrays.asList(event));
+
+    Assert.assertFalse(oldCalendar.hasAttendee(PERSON_A));
+    Assert.assertTrue(store.getCalendar().hasAttendee(PERSON_A));
+    Assert.assertEquals(Arrays.asList(event), store.getEvents());
+  }
+
+  @Test
+  public void addedEventsAreSeenRightAway() {
+    Event event = new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, 30),
+        Arrays.asList(PERSON_A));
+    CalendarStore store = new CalendarStore(Collections.<Event>emptyList());
+    CalendarIndex calendar = store.getCalendar();
+
+    store.addEvents(Arrays.asList(event));
+
+    Assert.assertSame(calendar, store.getCalendar());
+    Assert.assertTrue(calendar.hasAttendee(PERSON_A));
+    Assert.assertEquals(Arrays.asList(event), store.getEvents());
+
+    Assert.assertTrue(store.removeEvent(event));
+    Assert.assertFalse(calendar.hasAttendee(PERSON_A));
+    Assert.assertTrue(store.getEvents().isEmpty());
+  }
+}
@@ -0,0 +1,144 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class CoalescingMeetingQueryTest {
+  // Some people that we can use in our tests.
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+
+  private static final int DURATION_30_MINUTES = 30;
+
+  private CalendarIndex calendar;
+
+  @Before
+  public void setUp() {
+    calendar = new CalendarIndex(Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_A))));
+  }
+
+  @Test
+  public void concurrentRequestsShareOneQuery() throws InterruptedException {
+    // The delegate holds the first query until a second request is waiting for it.
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger runs = new AtomicInteger();
+    final CoalescingMeetingQuery query = new CoalescingMeetingQuery(new MeetingQuery() {
+      @Override
+      public Collection<TimeRange> query(Collection<Event> events, MeetingRequest request) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public Collection<TimeRange> query(CalendarIndex calendar, int[] attendeeIds,
+          int[] optionalAttendeeIds, long duration, TimeRange window) {
+        runs.incrementAndGet();
+        started.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          throw new IllegalStateException(e);
+        }
+        return new FindMeetingQuery().query(
+            calendar, attendeeIds, optionalAttendeeIds, duration, window);
+      }
+    });
+
+    final AtomicReference<Collection<TimeRange>> first = new AtomicReference<>();
+    Thread thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        first.set(query.query(calendar,
+            new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_30_MINUTES)));
+      }
+    });
+    thread.start();
+    started.await();
+
+    final AtomicReference<Collection<TimeRange>> second = new AtomicReference<>();
+    Thread waiter = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        // Same people in a different order.
+        second.set(query.query(calendar,
+            new MeetingRequest(Arrays.asList(PERSON_B, PERSON_A), DURATION_30_MINUTES)));
+      }
+    });
+    waiter.start();
+    while (query.getCoalescedCount() == 0) {
+      Thread.sleep(1);
+    }
+    release.countDown();
+    thread.join();
+    waiter.join();
+
+    Assert.assertEquals(1, runs.get());
+    Assert.assertSame(first.get(), second.get());
+    Assert.assertEquals(new FindMeetingQuery().query(calendar,
+        new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_30_MINUTES)), first.get());
+  }
+
+  @Test
+  public void finishedQueryIsNotReused() {
+    CoalescingMeetingQuery query = new CoalescingMeetingQuery(new FindMeetingQuery());
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+
+    Collection<TimeRange> first = query.query(calendar, request);
+    Collection<TimeRange> second = query.query(calendar, request);
+
+    Assert.assertNotSame(first, second);
+    Assert.assertEquals(first, second);
+    Assert.assertEquals(0, query.getCoalescedCount());
+  }
+
+  @Test
+  public void failureReachesCaller() {
+    CoalescingMeetingQuery query = new CoalescingMeetingQuery(new MeetingQuery() {
+      @Override
+      public Collection<TimeRange> query(Collection<Event> events, MeetingRequest request) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public Collection<TimeRange> query(CalendarIndex calendar, int[] attendeeIds,
+          int[] optionalAttendeeIds, long duration, TimeRange window) {
+        throw new IllegalArgumentException("bad request");
+      }
+    });
+
+    try {
+      query.query(calendar, new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES));
+      Assert.fail();
+    } catch (IllegalArgumentException e) {
+      Assert.assertEquals("bad request", e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,162 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class EventIntervalTreeTest {
+  private static final List<String> NO_ATTENDEES = Collections.emptyList();
+
+  @Test
+  public void overlappingEventsAreSortedByStart() {
+    // Events : |--1--|   |--2--|
+    //              |------3------|
+    // Window :          |-|
+    Event first = event("Event 1", 0, 100);
+    Event second = event("Event 2", 200, 300);
+    Event third = event("Event 3", 50, 350);
+    EventIntervalTree tree = tree(first, second, third);
+
+    Assert.assertEquals(Arrays.asList(third), tree.getOverlapping(range(150, 190)));
+    Assert.assertEquals(Arrays.asList(first, third, second), tree.getOverlapping(range(0, 400)));
+    Assert.assertEquals(Arrays.asList(third, second), tree.getOverlapping(range(100, 201)));
+  }
+
+  @Test
+  public void touchingEventsDoNotOverlap() {
+    EventIntervalTree tree = tree(event("Event 1", 0, 100), event("Event 2", 200, 300));
+
+    Assert.assertEquals(Arrays.asList(), tree.getOverlapping(range(100, 200)));
+  }
+
+  @Test
+  public void removeOneCopyOfSameEvent() {
+    Event event = event("Event 1", 0, 100);
+    EventIntervalTree tree = tree(event, event);
+
+    Assert.assertTrue(tree.remove(event));
+    Assert.assertEquals(Arrays.asList(event), tree.getOverlapping(range(0, 100)));
+    Assert.assertTrue(tree.remove(event));
+    Assert.assertFalse(tree.remove(event));
+    Assert.assertTrue(tree.isEmpty());
+  }
+
+  @Test
+  public void matchesLinearScanAfterRandomChanges() {
+    Random random = new Random(11);
+    EventIntervalTree tree = new EventIntervalTree();
+    List<Event> events = new ArrayList<>();
+
+    for (int round = 0; round < 2000; round++) {
+      if (!events.isEmpty() && random.nextInt(3) == 0) {
+        Event removed = events.remove(random.nextInt(events.size()));
+        Assert.assertTrue(tree.remove(removed));
+      } else {
+        int start = random.nextInt(10000);
+        Event added = event("Event " + round, start, start + 1 + random.nextInt(500));
+        events.add(added);
+        tree.add(added);
+      }
+
+      int windowStart = random.nextInt(10000);
+      TimeRange window = range(windowStart, windowStart + random.nextInt(1000));
+      List<Event> expected = new ArrayList<>();
+      for (Event event : events) {
+        TimeRange when = event.getWhen();
+        if (when.start() < window.end() && when.end() > window.start()) {
+          expected.add(event);
+        }
+      }
+      List<Event> actual = tree.getOverlapping(window);
+
+      Assert.assertEquals(events.size(), tree.size());
+      Assert.assertEquals(expected.size(), actual.size());
+      Assert.assertTrue(actual.containsAll(expected));
+      for (int i = 1; i < actual.size(); i++) {
+        Assert.assertTrue(actual.get(i - 1).getWhen().start() <= actual.get(i).getWhen().start());
+      }
+    }
+  }
+
+  @Test
+  public void readersSeeWholeTreeDuringChanges() throws InterruptedException {
+    // The writer keeps the last 100 events of a run in the tree, adding the next one and removing
+    // the oldest one, while a reader keeps reading all of them without a lock. Rotations must never
+    // hide events from the reader, so it always sees a run of consecutive events.
+    final EventIntervalTree tree = new EventIntervalTree();
+    final List<Event> events = new ArrayList<>();
+    for (int i = 0; i < 20000; i++) {
+      events.add(event("Event " + i, i, i + 10));
+    }
+
+    final AtomicBoolean writerDone = new AtomicBoolean();
+    final AtomicBoolean sawBrokenTree = new AtomicBoolean();
+    Thread reader = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        while (!writerDone.get()) {
+          List<Event> all = tree.getAll();
+          if (all.isEmpty()) {
+            continue;
+          }
+          int first = all.get(0).getWhen().start();
+          if (!all.equals(events.subList(first, first + all.size()))) {
+            sawBrokenTree.set(true);
+          }
+        }
+      }
+    });
+    reader.start();
+
+    for (int i = 0; i < events.size(); i++) {
+      tree.add(events.get(i));
+      if (i >= 100) {
+        tree.remove(events.get(i - 100));
+      }
+    }
+    writerDone.set(true);
+    reader.join();
+
+    Assert.assertFalse(sawBrokenTree.get());
+    Assert.assertEquals(events.subList(events.size() - 100, events.size()), tree.getAll());
+  }
+
+  private static EventIntervalTree tree(Event... events) {
+    EventIntervalTree tree = new EventIntervalTree();
+    for (Event event : events) {
+      tree.add(event);
+    }
+    return tree;
+  }
+
+  private static Event event(String title, int start, int end) {
+    return new Event(title, range(start, end), NO_ATTENDEES);
+  }
+
+  private static TimeRange range(int start, int end) {
+    return TimeRange.fromStartEnd(start, end, false);
+  }
+}
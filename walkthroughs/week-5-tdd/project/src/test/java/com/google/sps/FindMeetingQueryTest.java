@@ -19,6 +19,8 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -35,6 +37,7 @@ public final class FindMeetingQueryTest {
   private static final String PERSON_A = "Person A";
   private static final String PERSON_B = "Person B";
   private static final String PERSON_C = "Person C";
+  private static final String PERSON_D = "Person D";
 
   // All dates are the first day of the year 2020.
   private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
@@ -443,5 +446,291 @@ public final class FindMeetingQueryTest {
 
   }
 
-}
+  @Test
+  public void queryAllAnswersEveryRequestInOrder() {
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_B)));
+
+    List<MeetingRequest> requests = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      List<String> attendees = (i % 2 == 0) ? Arrays.asList(PERSON_A) : Arrays.asList(PERSON_B);
+      requests.add(new MeetingRequest(attendees, DURATION_30_MINUTES + i));
+    }
+
+    List<Collection<TimeRange>> expected = new ArrayList<>();
+    for (MeetingRequest request : requests) {
+      expected.add(query.query(events, request));
+    }
+
+    Assert.assertEquals(expected, query.queryAll(events, requests));
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      Assert.assertEquals(expected, query.queryAll(new CalendarIndex(events), requests, pool));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void searchWindowSpansSeveralDays() {
+    // Window  : |------ day 1 ------|------ day 2 ------|
+    // Events  :                 |-------A-------|
+    // Options : |-------1-------|               |---2---|
+
+    int day = TimeRange.MINUTES_PER_DAY;
+    TimeRange window = TimeRange.fromStartDuration(0, 2 * day);
+
+    // The event starts in the evening of the first day and ends in the morning of the second one.
+    Collection<Event> events = Arrays.asList(
+        new Event("Overnight", TimeRange.fromStartEnd(20 * 60, day + TIME_0800AM, false),
+            Arrays.asList(PERSON_A)));
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_2_HOUR);
+
+    Collection<TimeRange> actual = query.query(events, request, window);
+    Collection<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(0, 20 * 60, false),
+            TimeRange.fromStartEnd(day + TIME_0800AM, 2 * day, false));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void eventsOutsideOfSearchWindowAreIgnored() {
+    // The window is a single day far from zero, like a day in minutes since the epoch.
+    int windowStart = 26_000_000;
+    TimeRange window = TimeRange.fromStartDuration(windowStart, TimeRange.MINUTES_PER_DAY);
+
+    Collection<Event> events = Arrays.asList(
+        new Event("Before", TimeRange.fromStartDuration(windowStart - DURATION_1_HOUR,
+            DURATION_2_HOUR), Arrays.asList(PERSON_A)),
+        new Event("Long before", TimeRange.fromStartDuration(TIME_0800AM, DURATION_1_HOUR),
+            Arrays.asList(PERSON_A)),
+        new Event("After", TimeRange.fromStartDuration(window.end(), DURATION_1_HOUR),
+            Arrays.asList(PERSON_A)));
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+
+    Collection<TimeRange> actual = query.query(new CalendarIndex(events), request, window);
+    Collection<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(windowStart + DURATION_1_HOUR, window.end(), false));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void optionsForNoAttendeesIsWholeSearchWindow() {
+    TimeRange window = TimeRange.fromStartDuration(0, 7 * TimeRange.MINUTES_PER_DAY);
+    MeetingRequest request = new MeetingRequest(NO_ATTENDEES, DURATION_1_HOUR);
+
+    Collection<TimeRange> actual = query.query(NO_EVENTS, request, window);
+
+    Assert.assertEquals(Arrays.asList(window), actual);
+  }
+
+  @Test
+  public void maximizingKeepsOptionalAttendeesWhoCanMakeIt() {
+    // Optional : |--------------C--------------|
+    // Optional :       |--D--|
+    // Events   :                   |--A--|
+    // Options  : |--1--|     |--2--|     |--3--|
+    //
+    // C can never attend, so plain query drops both optional attendees and returns the gaps around
+    // A. D can still attend any of them.
+
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.WHOLE_DAY, Arrays.asList(PERSON_C)),
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_D)),
+        new Event("Event 3", TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_A)));
+
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    request.addOptionalAttendee(PERSON_C);
+    request.addOptionalAttendee(PERSON_D);
+
+    Collection<TimeRange> actual = query.queryMaximizingOptional(events, request);
+    Collection<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false),
+            TimeRange.fromStartEnd(TIME_0830AM, TIME_0900AM, false),
+            TimeRange.fromStartEnd(TIME_0930AM, TimeRange.END_OF_DAY, true));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void maximizingMatchesQueryWhenEveryoneFits() {
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_B)));
+
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    request.addOptionalAttendee(PERSON_B);
+
+    Assert.assertEquals(
+        query.query(events, request), query.queryMaximizingOptional(events, request));
+  }
+
+  @Test
+  public void maximizingMatchesBruteForceWithManyOptionalAttendees() {
+    Random random = new Random(3);
+    List<String> people = new ArrayList<>();
+    for (int i = 0; i < 120; i++) {
+      people.add("P" + i);
+    }
+
+    for (int round = 0; round < 20; round++) {
+      List<Event> events = new ArrayList<>();
+      for (int i = 0; i < 300; i++) {
+        int start = random.nextInt(TimeRange.MINUTES_PER_DAY - 30);
+        int duration = 15 + random.nextInt(Math.min(180, TimeRange.MINUTES_PER_DAY - start) - 14);
+        events.add(new Event("Event " + i, TimeRange.fromStartDuration(start, duration),
+            Arrays.asList(people.get(random.nextInt(people.size())))));
+      }
+
+      int duration = 15 + random.nextInt(60);
+      MeetingRequest request = new MeetingRequest(Arrays.asList(people.get(0)), duration);
+      for (String person : people.subList(1, people.size())) {
+        request.addOptionalAttendee(person);
+      }
+      CalendarIndex calendar = new CalendarIndex(events);
+
+      // Count the optional attendees of every meeting that works for the mandatory attendee.
+      int[] attendance = new int[TimeRange.MINUTES_PER_DAY];
+      Arrays.fill(attendance, -1);
+      int best = -1;
+      for (int start = 0; start + duration <= TimeRange.MINUTES_PER_DAY; start++) {
+        TimeRange meeting = TimeRange.fromStartDuration(start, duration);
+        if (isFree(calendar, people.get(0), meeting)) {
+          attendance[start] = 0;
+          for (String person : request.getOptionalAttendees()) {
+            attendance[start] += isFree(calendar, person, meeting) ? 1 : 0;
+          }
+          best = Math.max(best, attendance[start]);
+        }
+      }
+
+      List<TimeRange> expected = new ArrayList<>();
+      for (int start = 0; start < attendance.length; start++) {
+        if (attendance[start] == best && (start == 0 || attendance[start - 1] != best)) {
+          int end = start;
+          while (end + 1 < attendance.length && attendance[end + 1] == best) {
+            end++;
+          }
+          expected.add(TimeRange.fromStartEnd(start, end + duration, false));
+        }
+      }
+
+      Assert.assertEquals(expected, new ArrayList<>(
+          query.queryMaximizingOptional(calendar, request, TimeRange.WHOLE_DAY)));
+    }
+  }
+
+  private static boolean isFree(CalendarIndex calendar, String person, TimeRange meeting) {
+    for (TimeRange busy : calendar.getBusySlots(person)) {
+      if (busy.overlaps(meeting)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Test
+  public void iteratorMatchesQueryOnRandomCalendars() {
+    Random random = new Random(9);
+    List<String> people = Arrays.asList("P0", "P1", "P2", "P3", "P4", "P5", "P6", "P7");
+    TimeRange window = TimeRange.fromStartDuration(0, 3 * TimeRange.MINUTES_PER_DAY);
+
+    for (int round = 0; round < 200; round++) {
+      List<Event> events = new ArrayList<>();
+      for (int i = 0; i < 40; i++) {
+        int start = random.nextInt(window.end() + 200) - 100;
+        events.add(new Event("Event " + i,
+            TimeRange.fromStartDuration(start, random.nextInt(8 * 60)),
+            Arrays.asList(people.get(random.nextInt(people.size())))));
+      }
+
+      MeetingRequest request = new MeetingRequest(
+          people.subList(0, random.nextInt(4)), 15 + random.nextInt(120));
+      for (String person : people.subList(4, 4 + random.nextInt(4))) {
+        request.addOptionalAttendee(person);
+      }
+      CalendarIndex calendar = new CalendarIndex(events);
+
+      List<TimeRange> expected = new ArrayList<>(query.query(calendar, request, window));
+      List<TimeRange> actual = new ArrayList<>();
+      query.iterator(calendar, request, window).forEachRemaining(actual::add);
+      Assert.assertEquals(expected, actual);
+      Assert.assertEquals(expected.subList(0, Math.min(3, expected.size())),
+          query.queryFirst(calendar, request, window, 3));
+    }
+  }
 
+  @Test
+  public void nearestMeetingsAroundPreferredStart() {
+    // Events  :       |--A--|     |--A--|
+    // Options : |--1--|     |--2--|     |--3--|
+    // Prefer  :                |
+
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_A)));
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+
+    List<TimeRange> actual = query.queryNearest(
+        new CalendarIndex(events), request, TimeRange.WHOLE_DAY, TIME_0845AM, 3);
+    List<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartDuration(TIME_0830AM, DURATION_30_MINUTES),
+            TimeRange.fromStartDuration(TIME_0930AM, DURATION_30_MINUTES),
+            TimeRange.fromStartDuration(TIME_0800AM - DURATION_30_MINUTES, DURATION_30_MINUTES));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void nearestMatchesFullFreeListOnRandomCalendars() {
+    Random random = new Random(13);
+    List<String> people = Arrays.asList("P0", "P1", "P2", "P3", "P4", "P5");
+    TimeRange window = TimeRange.fromStartDuration(100, 2 * TimeRange.MINUTES_PER_DAY);
+
+    for (int round = 0; round < 300; round++) {
+      List<Event> events = new ArrayList<>();
+      for (int i = 0; i < 30; i++) {
+        int start = random.nextInt(window.end() + 200) - 100;
+        events.add(new Event("Event " + i,
+            TimeRange.fromStartDuration(start, 1 + random.nextInt(6 * 60)),
+            Arrays.asList(people.get(random.nextInt(people.size())))));
+      }
+      MeetingRequest request = new MeetingRequest(
+          people.subList(0, 1 + random.nextInt(3)), 15 + random.nextInt(120));
+      if (random.nextBoolean()) {
+        request.addOptionalAttendee(people.get(5));
+      }
+      CalendarIndex calendar = new CalendarIndex(events);
+      int preferredStart = random.nextInt(window.end() + 200) - 100;
+
+      // Place one meeting in every free slot and keep the nearest ones.
+      List<TimeRange> candidates = new ArrayList<>();
+      for (TimeRange slot : query.query(calendar, request, window)) {
+        int start = Math.max(slot.start(),
+            Math.min(preferredStart, slot.end() - (int) request.getDuration()));
+        candidates.add(TimeRange.fromStartDuration(start, (int) request.getDuration()));
+      }
+      Collections.sort(candidates, (a, b) -> {
+        int order = Integer.compare(
+            Math.abs(a.start() - preferredStart), Math.abs(b.start() - preferredStart));
+        return order != 0 ? order : Integer.compare(a.start(), b.start());
+      });
+      List<TimeRange> expected = candidates.subList(0, Math.min(4, candidates.size()));
+
+      Assert.assertEquals(
+          expected, query.queryNearest(calendar, request, window, preferredStart, 4));
+    }
+  }
+}
@@ -0,0 +1,106 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class IntervalListTest {
+  @Test
+  public void sortAndMerge() {
+    // Intervals: |---|     |--|
+    //              |---|      |--|  |--|
+    // Merged   : |-----|   |-----|  |--|
+    IntervalList list = intervals(300, 350, 100, 150, 120, 200, 330, 400, 500, 550);
+
+    list.sort().merge();
+
+    Assert.assertEquals(intervals(100, 200, 300, 400, 500, 550).toTimeRanges(),
+        list.toTimeRanges());
+  }
+
+  @Test
+  public void mergeDropsEmptyIntervals() {
+    IntervalList list = intervals(50, 50, 100, 150, 150, 150, 600, 600);
+
+    list.sort().merge();
+
+    Assert.assertEquals(intervals(100, 150).toTimeRanges(), list.toTimeRanges());
+  }
+
+  @Test
+  public void invertWithinWindow() {
+    IntervalList busy = intervals(0, 100, 200, 300, 1400, 1500);
+
+    IntervalList free = busy.invert(50, 1440);
+
+    Assert.assertEquals(intervals(100, 200, 300, 1400).toTimeRanges(), free.toTimeRanges());
+  }
+
+  @Test
+  public void invertEmptyListIsWholeWindow() {
+    IntervalList free = new IntervalList().invert(0, 1440);
+
+    Assert.assertEquals(Arrays.asList(TimeRange.WHOLE_DAY), free.toTimeRanges());
+  }
+
+  @Test
+  public void intersectKeepsLongEnoughOverlaps() {
+    // First    : |-------|   |-------|
+    // Second   :    |--|  |-----|  |--|
+    // Overlaps :    |--|     |--|  |-|
+    IntervalList first = intervals(0, 100, 150, 300);
+    IntervalList second = intervals(20, 60, 90, 200, 260, 400);
+
+    Assert.assertEquals(intervals(20, 60, 90, 100, 150, 200, 260, 300).toTimeRanges(),
+        first.intersect(second, 0).toTimeRanges());
+    Assert.assertEquals(intervals(20, 60, 150, 200, 260, 300).toTimeRanges(),
+        first.intersect(second, 40).toTimeRanges());
+  }
+
+  @Test
+  public void removeShorterThan() {
+    IntervalList list = intervals(0, 10, 20, 50, 60, 65);
+
+    list.removeShorterThan(10);
+
+    Assert.assertEquals(intervals(0, 10, 20, 50).toTimeRanges(), list.toTimeRanges());
+  }
+
+  @Test
+  public void addAllWithinSkipsIntervalsOutsideOfWindow() {
+    IntervalList busy = intervals(0, 100, 200, 300, 400, 500, 600, 700);
+
+    IntervalList within = new IntervalList();
+    within.addAllWithin(busy, 250, 600);
+
+    Assert.assertEquals(intervals(200, 300, 400, 500).toTimeRanges(), within.toTimeRanges());
+    Assert.assertEquals(1, busy.indexOfFirstEndingAfter(100));
+    Assert.assertEquals(4, busy.indexOfFirstEndingAfter(700));
+  }
+
+  private static IntervalList intervals(int... startsAndEnds) {
+    IntervalList list = new IntervalList();
+    for (int i = 0; i < startsAndEnds.length; i += 2) {
+      list.add(startsAndEnds[i], startsAndEnds[i + 1]);
+    }
+    return list;
+  }
+}
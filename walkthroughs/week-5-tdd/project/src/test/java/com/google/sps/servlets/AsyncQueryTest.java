@@ -0,0 +1,205 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.TimeRange;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class AsyncQueryTest {
+  private static final Collection<TimeRange> ANSWER = Arrays.asList(TimeRange.WHOLE_DAY);
+
+  private RecordingResponder responder;
+  private ManualExecutor executor;
+  private AtomicInteger calls;
+
+  @Before
+  public void setUp() {
+    responder = new RecordingResponder();
+    executor = new ManualExecutor();
+    calls = new AtomicInteger();
+  }
+
+  @Test
+  public void answerIsSent() {
+    AsyncQuery query = new AsyncQuery(responder);
+    query.submit(executor, answering());
+    executor.runAll();
+
+    Assert.assertSame(ANSWER, responder.answer);
+    Assert.assertEquals(0, responder.status);
+    Assert.assertEquals(1, responder.completions);
+  }
+
+  @Test
+  public void failedQueryGets500() {
+    AsyncQuery query = new AsyncQuery(responder);
+    query.submit(executor, new Callable<Collection<TimeRange>>() {
+      @Override
+      public Collection<TimeRange> call() {
+        throw new IllegalStateException("broken");
+      }
+    });
+    executor.runAll();
+
+    Assert.assertEquals(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, responder.status);
+    Assert.assertEquals(1, responder.completions);
+    Assert.assertEquals(1, responder.logged.size());
+  }
+
+  @Test
+  public void fullExecutorGets503() {
+    executor.rejecting = true;
+    AsyncQuery query = new AsyncQuery(responder);
+    query.submit(executor, answering());
+
+    Assert.assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, responder.status);
+    Assert.assertEquals(1, responder.completions);
+    Assert.assertEquals(0, calls.get());
+  }
+
+  @Test
+  public void timeoutBeforeQueryRunsGets503AndSkipsQuery() {
+    AsyncQuery query = new AsyncQuery(responder);
+    query.submit(executor, answering());
+    query.onTimeout();
+    executor.runAll();
+
+    Assert.assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, responder.status);
+    Assert.assertNull(responder.answer);
+    Assert.assertEquals(1, responder.completions);
+    Assert.assertEquals(0, calls.get());
+  }
+
+  @Test
+  public void timeoutAfterAnswerDoesNothing() {
+    AsyncQuery query = new AsyncQuery(responder);
+    query.submit(executor, answering());
+    executor.runAll();
+    query.onTimeout();
+
+    Assert.assertSame(ANSWER, responder.answer);
+    Assert.assertEquals(0, responder.status);
+    Assert.assertEquals(1, responder.completions);
+  }
+
+  @Test
+  public void clientErrorStopsAnswer() {
+    AsyncQuery query = new AsyncQuery(responder);
+    query.submit(executor, answering());
+    query.onError();
+    executor.runAll();
+
+    Assert.assertNull(responder.answer);
+    Assert.assertEquals(0, responder.completions);
+    Assert.assertEquals(0, calls.get());
+  }
+
+  private Callable<Collection<TimeRange>> answering() {
+    return new Callable<Collection<TimeRange>>() {
+      @Override
+      public Collection<TimeRange> call() {
+        calls.incrementAndGet();
+        return ANSWER;
+      }
+    };
+  }
+
+  private static final class RecordingResponder implements AsyncQuery.Responder {
+    Collection<TimeRange> answer;
+    int status;
+    int completions;
+    final List<Throwable> logged = new ArrayList<>();
+
+    @Override
+    public void sendAnswer(Collection<TimeRange> answer) {
+      this.answer = answer;
+    }
+
+    @Override
+    public void sendError(int status, String message) {
+      this.status = status;
+    }
+
+    @Override
+    public void complete() {
+      completions++;
+    }
+
+    @Override
+    public void log(String message, Throwable error) {
+      logged.add(error);
+    }
+  }
+
+  /** Runs tasks only when told to, or rejects them all. */
+  private static final class ManualExecutor extends AbstractExecutorService {
+    boolean rejecting;
+    final List<Runnable> tasks = new ArrayList<>();
+
+    void runAll() {
+      for (Runnable task : tasks) {
+        task.run();
+      }
+      tasks.clear();
+    }
+
+    @Override
+    public void execute(Runnable task) {
+      if (rejecting) {
+        throw new RejectedExecutionException();
+      }
+      tasks.add(task);
+    }
+
+    @Override
+    public void shutdown() {}
+
+    @Override
+    public List<Runnable> shutdownNow() {
+      return new ArrayList<>();
+    }
+
+    @Override
+    public boolean isShutdown() {
+      return false;
+    }
+
+    @Override
+    public boolean isTerminated() {
+      return false;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) {
+      return true;
+    }
+  }
+}
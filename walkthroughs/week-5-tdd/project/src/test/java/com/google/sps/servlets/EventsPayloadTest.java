@@ -0,0 +1,111 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.gson.Gson;
+import com.google.sps.CalendarIndex;
+import com.google.sps.Event;
+import com.google.sps.Events;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class EventsPayloadTest {
+  private static final List<Event> EVENTS = Arrays.asList(Events.events);
+
+  @Test
+  public void gzippedJsonMatchesJson() throws IOException {
+    EventsPayload payload = new EventsPayload(new CalendarIndex(EVENTS), new Gson());
+
+    Assert.assertEquals(
+        new Gson().toJson(new CalendarIndex(EVENTS).getEvents()), new String(payload.json, "UTF-8"));
+    Assert.assertArrayEquals(payload.json, gunzip(payload.gzippedJson));
+    Assert.assertTrue(payload.gzippedJson.length < payload.json.length);
+  }
+
+  @Test
+  public void etagDependsOnlyOnEvents() {
+    EventsPayload payload = new EventsPayload(new CalendarIndex(EVENTS), new Gson());
+
+    Assert.assertEquals(payload.etag, new EventsPayload(new CalendarIndex(EVENTS), new Gson()).etag);
+    CalendarIndex fewerEvents = new CalendarIndex(EVENTS.subList(1, EVENTS.size()));
+    Assert.assertNotEquals(payload.etag, new EventsPayload(fewerEvents, new Gson()).etag);
+    Assert.assertTrue(payload.etag.startsWith("\"") && payload.etag.endsWith("\""));
+  }
+
+  @Test
+  public void changeToCalendarMakesPayloadStale() {
+    CalendarIndex calendar = new CalendarIndex(EVENTS);
+    EventsPayload payload = new EventsPayload(calendar, new Gson());
+    Assert.assertTrue(payload.isCurrent(calendar));
+
+    calendar.removeEvent(EVENTS.get(0));
+
+    Assert.assertFalse(payload.isCurrent(calendar));
+    Assert.assertFalse(payload.isCurrent(new CalendarIndex(EVENTS)));
+  }
+
+  @Test
+  public void ifNoneMatch() {
+    EventsPayload payload = new EventsPayload(new CalendarIndex(EVENTS), new Gson());
+    String etag = payload.etag;
+
+    Assert.assertTrue(EventsPayload.matches(etag, etag));
+    Assert.assertTrue(EventsPayload.matches("\"other\", W/" + etag, etag));
+    Assert.assertTrue(EventsPayload.matches("*", etag));
+    Assert.assertFalse(EventsPayload.matches("\"other\"", etag));
+    Assert.assertFalse(EventsPayload.matches(null, etag));
+  }
+
+  @Test
+  public void gzipBodyHasItsOwnTag() {
+    EventsPayload payload = new EventsPayload(new CalendarIndex(EVENTS), new Gson());
+
+    Assert.assertNotEquals(payload.etag, payload.gzipEtag);
+    Assert.assertTrue(payload.gzipEtag.startsWith("\"") && payload.gzipEtag.endsWith("\""));
+    Assert.assertFalse(EventsPayload.matches(payload.etag, payload.gzipEtag));
+    Assert.assertFalse(EventsPayload.matches(payload.gzipEtag, payload.etag));
+  }
+
+  @Test
+  public void acceptEncoding() {
+    Assert.assertTrue(EventsPayload.acceptsGzip("gzip, deflate, br"));
+    Assert.assertTrue(EventsPayload.acceptsGzip("br;q=1.0, GZIP;q=0.5"));
+    Assert.assertFalse(EventsPayload.acceptsGzip("gzip;q=0"));
+    Assert.assertFalse(EventsPayload.acceptsGzip("identity"));
+    Assert.assertFalse(EventsPayload.acceptsGzip(null));
+  }
+
+  private static byte[] gunzip(byte[] bytes) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+      byte[] buffer = new byte[4096];
+      for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+        out.write(buffer, 0, read);
+      }
+    }
+    return out.toByteArray();
+  }
+}
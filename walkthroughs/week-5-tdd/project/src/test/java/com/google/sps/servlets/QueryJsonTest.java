@@ -0,0 +1,74 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.AttendeeDictionary;
+import com.google.sps.TimeRange;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class QueryJsonTest {
+  @Test
+  public void readsAttendeesIntoIds() throws IOException {
+    AttendeeDictionary dictionary = new AttendeeDictionary();
+    int ava = dictionary.intern("Ava");
+    int noah = dictionary.intern("Noah");
+
+    String json = "{\"duration\": \"30\", \"attendees\": [\"Noah\", \"Ava\", \"Noah\"],"
+        + " \"optional_attendees\": [\"Nobody\"], \"extra\": {\"ignored\": [1, 2]}}";
+    QueryJson.Request request =
+        QueryJson.readRequest(new JsonReader(new StringReader(json)), dictionary);
+
+    Assert.assertArrayEquals(new int[] {ava, noah}, request.attendeeIds);
+    Assert.assertArrayEquals(
+        new int[] {AttendeeDictionary.UNKNOWN_ID}, request.optionalAttendeeIds);
+    Assert.assertEquals(30, request.duration);
+  }
+
+  @Test
+  public void missingListsAreEmpty() throws IOException {
+    QueryJson.Request request = QueryJson.readRequest(
+        new JsonReader(new StringReader("{\"duration\": 60, \"optional_attendees\": null}")),
+        new AttendeeDictionary());
+
+    Assert.assertArrayEquals(new int[0], request.attendeeIds);
+    Assert.assertArrayEquals(new int[0], request.optionalAttendeeIds);
+  }
+
+  @Test
+  public void writesSameJsonAsGson() throws IOException {
+    List<TimeRange> ranges = Arrays.asList(
+        TimeRange.fromStartDuration(0, 480), TimeRange.fromStartEnd(510, 1440, false));
+
+    StringWriter json = new StringWriter();
+    JsonWriter writer = new JsonWriter(json);
+    QueryJson.writeTimeRanges(writer, ranges);
+    writer.flush();
+
+    Assert.assertEquals(new Gson().toJson(ranges), json.toString());
+  }
+}